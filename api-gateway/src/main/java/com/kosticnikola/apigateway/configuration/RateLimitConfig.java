@@ -0,0 +1,36 @@
+package com.kosticnikola.apigateway.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+@Configuration
+public class RateLimitConfig {
+    @Bean
+    public KeyResolver clientKeyResolver(@Value("${gateway.rate-limit.client-header:}") String clientHeader,
+                                         @Value("${gateway.rate-limit.trusted-proxies:}") String[] trustedProxies) {
+        Set<String> proxies = new HashSet<>(Arrays.asList(trustedProxies));
+        return exchange -> {
+            String remoteAddress = Optional.ofNullable(exchange.getRequest().getRemoteAddress())
+                    .map(InetSocketAddress::getAddress)
+                    .map(InetAddress::getHostAddress)
+                    .orElse("unknown");
+            if (StringUtils.hasText(clientHeader) && proxies.contains(remoteAddress)) {
+                String client = exchange.getRequest().getHeaders().getFirst(clientHeader);
+                if (StringUtils.hasText(client))
+                    return Mono.just(client);
+            }
+            return Mono.just(remoteAddress);
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.kosticnikola.apigateway.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final double longRttDecay;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRtt;
+
+    AdaptiveConcurrencyLimit(ConcurrencyLimitGatewayFilterFactory.Config config) {
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.smoothing = config.getSmoothing();
+        this.tolerance = config.getTolerance();
+        this.backoffRatio = config.getBackoffRatio();
+        this.longRttDecay = 2d / (config.getLongWindow() + 1);
+        this.limit = config.getInitialLimit();
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit)
+                return -1;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped) {
+            limit = clamp(limit * backoffRatio);
+            return;
+        }
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+            return;
+        }
+        longRtt += (rttNanos - longRtt) * longRttDecay;
+        if (longRtt / rttNanos > 2)
+            longRtt *= 0.95;
+        if (inFlightAtStart < limit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+}
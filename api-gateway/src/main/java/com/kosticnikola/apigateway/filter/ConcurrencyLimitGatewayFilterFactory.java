@@ -0,0 +1,78 @@
+package com.kosticnikola.apigateway.filter;
+
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class ConcurrencyLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    public static final String LIMIT_HEADER = "X-Concurrency-Limit";
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public ConcurrencyLimitGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+        return (exchange, chain) -> {
+            Set<URI> originalUris = exchange.getAttributeOrDefault(
+                    ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR, Collections.emptySet());
+            String path = originalUris.stream()
+                    .findFirst()
+                    .map(URI::getRawPath)
+                    .orElse(exchange.getRequest().getPath().value());
+            if (config.getExcludedPaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path)))
+                return chain.filter(exchange);
+
+            int inFlight = limit.tryAcquire();
+            if (inFlight < 0) {
+                exchange.getResponse().getHeaders().set(LIMIT_HEADER, String.valueOf(limit.getLimit()));
+                ServerWebExchangeUtils.setResponseStatus(exchange, config.getStatusCode());
+                return exchange.getResponse().setComplete();
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                limit.release();
+                if (signal == SignalType.CANCEL)
+                    return;
+                HttpStatus status = exchange.getResponse().getStatusCode();
+                boolean dropped = signal == SignalType.ON_ERROR
+                        || status == HttpStatus.BAD_GATEWAY
+                        || status == HttpStatus.SERVICE_UNAVAILABLE
+                        || status == HttpStatus.GATEWAY_TIMEOUT;
+                limit.onSample(System.nanoTime() - start, inFlight, dropped);
+            });
+        };
+    }
+
+    @Data
+    public static class Config {
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 200;
+        private double smoothing = 0.2;
+        private double tolerance = 1.5;
+        private double backoffRatio = 0.9;
+        private int longWindow = 600;
+        private HttpStatus statusCode = HttpStatus.SERVICE_UNAVAILABLE;
+        private List<String> excludedPaths = new ArrayList<>();
+    }
+
+}
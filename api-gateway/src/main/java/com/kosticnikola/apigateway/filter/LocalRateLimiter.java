@@ -0,0 +1,86 @@
+package com.kosticnikola.apigateway.filter;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxClients;
+    private final Config defaultConfig = new Config();
+    private final ConcurrentMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> routeBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong cleanedAt = new AtomicLong(System.nanoTime());
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            @Value("${gateway.rate-limit.max-clients:100000}") int maxClients) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.maxClients = maxClients;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return isAllowed(routeId, id, System.nanoTime());
+    }
+
+    Mono<Response> isAllowed(String routeId, String id, long now) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        cleanUp(now);
+
+        TokenBucket client = clientBuckets.computeIfAbsent(routeId + '|' + id,
+                key -> new TokenBucket(config.getBurstCapacity(), config.getReplenishRate(), now));
+        boolean allowed = client.tryAcquire(config.getRequestedTokens(), now);
+        if (allowed && config.getRouteReplenishRate() > 0) {
+            TokenBucket route = routeBuckets.computeIfAbsent(routeId,
+                    key -> new TokenBucket(config.getRouteBurstCapacity(), config.getRouteReplenishRate(), now));
+            allowed = route.tryAcquire(config.getRequestedTokens(), now);
+            if (!allowed)
+                client.release(config.getRequestedTokens());
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(client.remaining(now)));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        return Mono.just(new Response(allowed, headers));
+    }
+
+    int getClientCount() {
+        return clientBuckets.size();
+    }
+
+    private void cleanUp(long now) {
+        long last = cleanedAt.get();
+        if (clientBuckets.size() <= maxClients || now - last < CLEANUP_INTERVAL_NANOS || !cleanedAt.compareAndSet(last, now))
+            return;
+        clientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    @Data
+    public static class Config {
+        private int replenishRate = 50;
+        private int burstCapacity = 100;
+        private int requestedTokens = 1;
+        private int routeReplenishRate;
+        private int routeBurstCapacity;
+    }
+
+}
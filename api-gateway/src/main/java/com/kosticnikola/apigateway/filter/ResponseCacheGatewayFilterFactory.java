@@ -0,0 +1,245 @@
+package com.kosticnikola.apigateway.filter;
+
+import lombok.Data;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final String X_CACHE = "X-Cache";
+    private static final List<String> UNCACHED_HEADERS = Arrays.asList(
+            HttpHeaders.CONNECTION,
+            HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.DATE,
+            HttpHeaders.TRANSFER_ENCODING,
+            X_CACHE
+    );
+
+    private final ResponseCacheRegistry responseCacheRegistry;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheRegistry responseCacheRegistry) {
+        super(Config.class);
+        this.responseCacheRegistry = responseCacheRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        ResponseCacheRegion region = responseCacheRegistry.register(config);
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            Set<String> directives = directives(request.getHeaders());
+            String path = request.getPath().value();
+            if (request.getMethod() != HttpMethod.GET
+                    || directives.contains("no-store")
+                    || config.getExcludedPaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path)))
+                return chain.filter(exchange);
+
+            String key = key(request);
+            long now = System.nanoTime();
+            if (!directives.contains("no-cache") && !directives.contains("max-age=0")) {
+                ResponseCacheRegion.CachedResponse cached = region.get(key, now);
+                if (cached != null)
+                    return serve(exchange, cached, now);
+            }
+
+            exchange.getResponse().getHeaders().set(X_CACHE, "MISS");
+            CachingResponse response = new CachingResponse(exchange.getResponse(), config, region, key,
+                    path, region.getGeneration());
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static Mono<Void> serve(ServerWebExchange exchange, ResponseCacheRegion.CachedResponse cached, long now) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers);
+        headers.set(X_CACHE, "HIT");
+        headers.set(HttpHeaders.AGE, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - cached.storedAt)));
+
+        String eTag = cached.headers.getETag();
+        if (eTag != null && matches(exchange.getRequest().getHeaders().getIfNoneMatch(), eTag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status);
+        headers.setContentLength(cached.body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body)));
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String eTag) {
+        String opaque = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        return ifNoneMatch.stream()
+                .anyMatch(tag -> tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque));
+    }
+
+    private static String key(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getURI().getRawPath() + '?' + Objects.toString(request.getURI().getRawQuery(), "")
+                + '|' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT))
+                + '|' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private static Set<String> directives(HttpHeaders headers) {
+        Set<String> directives = new HashSet<>();
+        headers.getOrEmpty(HttpHeaders.CACHE_CONTROL).forEach(value -> {
+            for (String directive : value.split(","))
+                directives.add(directive.trim().toLowerCase(Locale.ROOT));
+        });
+        return directives;
+    }
+
+    private static Duration timeToLive(HttpHeaders headers, Duration configured) {
+        Set<String> directives = directives(headers);
+        if (directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private")
+                || headers.getVary().contains("*") || headers.containsKey(HttpHeaders.SET_COOKIE))
+            return Duration.ZERO;
+        Optional<Duration> maxAge = seconds(directives, "s-maxage=");
+        if (!maxAge.isPresent())
+            maxAge = seconds(directives, "max-age=");
+        return maxAge.filter(duration -> duration.compareTo(configured) < 0).orElse(configured);
+    }
+
+    private static Optional<Duration> seconds(Set<String> directives, String prefix) {
+        return directives.stream()
+                .filter(directive -> directive.startsWith(prefix))
+                .findFirst()
+                .map(directive -> {
+                    try {
+                        return Duration.ofSeconds(Math.max(0, Long.parseLong(directive.substring(prefix.length()))));
+                    } catch (NumberFormatException e) {
+                        return Duration.ZERO;
+                    }
+                });
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String routeId;
+        private Duration timeToLive = Duration.ofSeconds(30);
+        private int maxEntries = 1000;
+        private int maxBodyBytes = 1024 * 1024;
+        private List<String> invalidatedBy = new ArrayList<>();
+        private List<String> invalidatedPaths = new ArrayList<>();
+        private List<String> readOnlyPaths = new ArrayList<>();
+        private List<String> excludedPaths = new ArrayList<>();
+    }
+
+    private static class CachingResponse extends ServerHttpResponseDecorator {
+        private final Config config;
+        private final ResponseCacheRegion region;
+        private final String key;
+        private final String path;
+        private final long generation;
+
+        private CachingResponse(ServerHttpResponse delegate, Config config, ResponseCacheRegion region,
+                                String key, String path, long generation) {
+            super(delegate);
+            this.config = config;
+            this.region = region;
+            this.key = key;
+            this.path = path;
+            this.generation = generation;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            Duration timeToLive = timeToLive(headers, config.getTimeToLive());
+            if (getStatusCode() != HttpStatus.OK
+                    || timeToLive.isZero()
+                    || headers.getContentLength() > config.getMaxBodyBytes()
+                    || MediaType.TEXT_EVENT_STREAM.isCompatibleWith(headers.getContentType()))
+                return super.writeWith(body);
+
+            BoundedBody boundedBody = new BoundedBody(config.getMaxBodyBytes());
+            Flux<DataBuffer> buffers = Flux.from(body)
+                    .concatMapIterable(boundedBody::add)
+                    .concatWith(Mono.defer(() -> {
+                        byte[] bytes = boundedBody.complete();
+                        if (bytes == null)
+                            return Mono.empty();
+                        HttpHeaders cachedHeaders = new HttpHeaders();
+                        headers.forEach((name, values) -> {
+                            if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase))
+                                cachedHeaders.put(name, new ArrayList<>(values));
+                        });
+                        long now = System.nanoTime();
+                        region.put(key, new ResponseCacheRegion.CachedResponse(
+                                path, HttpStatus.OK, cachedHeaders, bytes, now, now + timeToLive.toNanos()), generation);
+                        return Mono.just(bufferFactory().wrap(bytes));
+                    }))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> boundedBody.release());
+            return super.writeWith(buffers);
+        }
+    }
+
+    private static class BoundedBody {
+        private final int maxBytes;
+        private final List<DataBuffer> held = new ArrayList<>();
+        private int size;
+        private boolean overflowed;
+
+        private BoundedBody(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private List<DataBuffer> add(DataBuffer buffer) {
+            if (overflowed)
+                return Collections.singletonList(buffer);
+            held.add(buffer);
+            size += buffer.readableByteCount();
+            if (size <= maxBytes)
+                return Collections.emptyList();
+            overflowed = true;
+            List<DataBuffer> passed = new ArrayList<>(held);
+            held.clear();
+            return passed;
+        }
+
+        private byte[] complete() {
+            if (overflowed)
+                return null;
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (DataBuffer buffer : held) {
+                int length = buffer.readableByteCount();
+                buffer.read(bytes, offset, length);
+                offset += length;
+            }
+            release();
+            return bytes;
+        }
+
+        private void release() {
+            held.forEach(DataBufferUtils::release);
+            held.clear();
+        }
+    }
+
+}
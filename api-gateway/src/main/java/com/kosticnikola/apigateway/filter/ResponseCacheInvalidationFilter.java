@@ -0,0 +1,47 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Component
+public class ResponseCacheInvalidationFilter implements GlobalFilter, Ordered {
+
+    private static final Set<HttpMethod> MUTATIONS = EnumSet.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final ResponseCacheRegistry responseCacheRegistry;
+
+    public ResponseCacheInvalidationFilter(ResponseCacheRegistry responseCacheRegistry) {
+        this.responseCacheRegistry = responseCacheRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !MUTATIONS.contains(exchange.getRequest().getMethod()))
+            return chain.filter(exchange);
+
+        String path = exchange.getRequest().getPath().value();
+        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+            HttpStatus status = exchange.getResponse().getStatusCode();
+            if (status == null || status.is2xxSuccessful())
+                responseCacheRegistry.invalidate(route.getId(), path);
+        }));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+class ResponseCacheRegion {
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final String routeId;
+    private final Set<String> invalidatedBy;
+    private final List<String> invalidatedPaths;
+    private final List<String> readOnlyPaths;
+    private final int maxEntries;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>();
+    private long generation;
+
+    ResponseCacheRegion(String routeId, Set<String> invalidatedBy, List<String> invalidatedPaths,
+                        List<String> readOnlyPaths, int maxEntries) {
+        this.routeId = routeId;
+        this.invalidatedBy = invalidatedBy;
+        this.invalidatedPaths = invalidatedPaths;
+        this.readOnlyPaths = readOnlyPaths;
+        this.maxEntries = maxEntries;
+    }
+
+    String getRouteId() {
+        return routeId;
+    }
+
+    boolean isInvalidatedBy(String routeId) {
+        return invalidatedBy.contains(routeId);
+    }
+
+    boolean isReadOnly(String path) {
+        return readOnlyPaths.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    synchronized CachedResponse get(String key, long now) {
+        CachedResponse cached = entries.get(key);
+        if (cached == null)
+            return null;
+        if (cached.expiresAt - now <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    synchronized void put(String key, CachedResponse cached, long generation) {
+        if (generation != this.generation)
+            return;
+        entries.remove(key);
+        entries.put(key, cached);
+        Iterator<CachedResponse> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    synchronized void invalidate(String path) {
+        generation++;
+        entries.values().removeIf(cached -> cached.path.equals(path)
+                || cached.path.startsWith(path + "/")
+                || path.startsWith(cached.path + "/"));
+    }
+
+    synchronized void invalidateDependents() {
+        if (invalidatedPaths.isEmpty()) {
+            clear();
+            return;
+        }
+        generation++;
+        entries.values().removeIf(cached -> invalidatedPaths.stream()
+                .anyMatch(pattern -> PATH_MATCHER.match(pattern, cached.path)));
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    static class CachedResponse {
+        final String path;
+        final HttpStatus status;
+        final HttpHeaders headers;
+        final byte[] body;
+        final long storedAt;
+        final long expiresAt;
+
+        CachedResponse(String path, HttpStatus status, HttpHeaders headers, byte[] body, long storedAt, long expiresAt) {
+            this.path = path;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
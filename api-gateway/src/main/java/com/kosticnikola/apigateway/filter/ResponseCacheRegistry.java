@@ -0,0 +1,39 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ResponseCacheRegistry {
+
+    private final Map<String, ResponseCacheRegion> regions = new ConcurrentHashMap<>();
+
+    ResponseCacheRegion register(ResponseCacheGatewayFilterFactory.Config config) {
+        ResponseCacheRegion region = new ResponseCacheRegion(
+                config.getRouteId(),
+                new HashSet<>(config.getInvalidatedBy()),
+                new ArrayList<>(config.getInvalidatedPaths()),
+                new ArrayList<>(config.getReadOnlyPaths()),
+                config.getMaxEntries()
+        );
+        regions.put(config.getRouteId(), region);
+        return region;
+    }
+
+    public void invalidate(String routeId, String path) {
+        ResponseCacheRegion own = regions.get(routeId);
+        if (own != null && own.isReadOnly(path))
+            return;
+        regions.values().forEach(region -> {
+            if (region.getRouteId().equals(routeId))
+                region.invalidate(path);
+            else if (region.isInvalidatedBy(routeId))
+                region.invalidateDependents();
+        });
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.kosticnikola.apigateway.filter;
+
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    synchronized boolean tryAcquire(int requested, long now) {
+        refill(now);
+        if (tokens < requested)
+            return false;
+        tokens -= requested;
+        return true;
+    }
+
+    synchronized void release(int requested) {
+        tokens = Math.min(capacity, tokens + requested);
+    }
+
+    synchronized long remaining(long now) {
+        refill(now);
+        return (long) tokens;
+    }
+
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class AdaptiveConcurrencyLimitTest {
+
+    static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    ConcurrencyLimitGatewayFilterFactory.Config config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ConcurrencyLimitGatewayFilterFactory.Config();
+        config.setInitialLimit(20);
+        config.setMinLimit(4);
+        config.setMaxLimit(40);
+    }
+
+    @Test
+    void tryAcquire_ShouldReturnMinusOne_IfLimitReached() {
+        config.setInitialLimit(2);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        Assertions.assertEquals(1, limit.tryAcquire());
+        Assertions.assertEquals(2, limit.tryAcquire());
+        Assertions.assertEquals(-1, limit.tryAcquire());
+
+        limit.release();
+        Assertions.assertEquals(2, limit.tryAcquire());
+    }
+
+    @Test
+    void onSample_ShouldGrowLimit_IfLatencyIsStable() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        for (int i = 0; i < 10; i++)
+            limit.onSample(RTT, limit.getLimit(), false);
+
+        Assertions.assertTrue(limit.getLimit() > 20);
+    }
+
+    @Test
+    void onSample_ShouldKeepLimit_IfMostlyIdle() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        for (int i = 0; i < 10; i++)
+            limit.onSample(RTT, 1, false);
+
+        Assertions.assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void onSample_ShouldShrinkLimit_IfLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+        limit.onSample(RTT, 20, false);
+
+        for (int i = 0; i < 10; i++)
+            limit.onSample(RTT * 4, limit.getLimit(), false);
+
+        Assertions.assertTrue(limit.getLimit() < 20);
+    }
+
+    @Test
+    void onSample_ShouldBackOff_IfDropped() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        limit.onSample(RTT, 20, true);
+
+        Assertions.assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void onSample_ShouldClampToMinAndMaxLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        for (int i = 0; i < 100; i++)
+            limit.onSample(RTT, 20, true);
+        Assertions.assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 1000; i++)
+            limit.onSample(RTT, limit.getLimit(), false);
+        Assertions.assertEquals(40, limit.getLimit());
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+
+import java.util.concurrent.TimeUnit;
+
+class LocalRateLimiterTest {
+
+    @Mock
+    ConfigurationService configurationService;
+
+    LocalRateLimiter localRateLimiter;
+
+    long now;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        localRateLimiter = new LocalRateLimiter(configurationService, 2);
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(1);
+        config.setBurstCapacity(2);
+        config.setRouteReplenishRate(1);
+        config.setRouteBurstCapacity(3);
+        localRateLimiter.getConfig().put("team", config);
+        now = System.nanoTime();
+    }
+
+    RateLimiter.Response isAllowed(String id, long at) {
+        return localRateLimiter.isAllowed("team", id, at).block();
+    }
+
+    @Test
+    void isAllowed_ShouldReturnFalse_IfClientBucketIsEmpty() {
+        Assertions.assertTrue(isAllowed("a", now).isAllowed());
+        Assertions.assertTrue(isAllowed("a", now).isAllowed());
+
+        RateLimiter.Response response = isAllowed("a", now);
+
+        Assertions.assertFalse(response.isAllowed());
+        Assertions.assertEquals("0", response.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+        Assertions.assertTrue(isAllowed("b", now).isAllowed());
+    }
+
+    @Test
+    void isAllowed_ShouldRefundClientToken_IfRouteBucketIsEmpty() {
+        isAllowed("a", now);
+        isAllowed("b", now);
+        isAllowed("c", now);
+
+        RateLimiter.Response response = isAllowed("d", now);
+
+        Assertions.assertFalse(response.isAllowed());
+        Assertions.assertEquals("2", response.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+    }
+
+    @Test
+    void isAllowed_ShouldRemoveFullClientBuckets_IfOverMaxClients() {
+        isAllowed("a", now);
+        isAllowed("b", now);
+        isAllowed("c", now);
+        Assertions.assertEquals(3, localRateLimiter.getClientCount());
+
+        isAllowed("d", now + TimeUnit.SECONDS.toNanos(5));
+
+        Assertions.assertEquals(1, localRateLimiter.getClientCount());
+    }
+
+    @Test
+    void isAllowed_ShouldKeepClientBuckets_IfWithinMaxClients() {
+        isAllowed("a", now);
+        isAllowed("b", now + TimeUnit.SECONDS.toNanos(5));
+
+        Assertions.assertEquals(2, localRateLimiter.getClientCount());
+    }
+
+}
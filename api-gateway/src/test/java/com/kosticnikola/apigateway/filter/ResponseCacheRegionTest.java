@@ -0,0 +1,113 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+class ResponseCacheRegionTest {
+
+    ResponseCacheRegion responseCacheRegion;
+
+    @BeforeEach
+    void setUp() {
+        responseCacheRegion = new ResponseCacheRegion("team", new HashSet<>(Collections.singletonList("transfer")),
+                Collections.singletonList("/team/player/**"), Arrays.asList("/team/exist", "/team/existing"), 2);
+    }
+
+    static ResponseCacheRegion.CachedResponse cached(String path, long storedAt, long expiresAt) {
+        return new ResponseCacheRegion.CachedResponse(path, HttpStatus.OK, new HttpHeaders(), new byte[0], storedAt, expiresAt);
+    }
+
+    @Test
+    void get_ShouldReturnCachedResponse_IfNotExpired() {
+        ResponseCacheRegion.CachedResponse cached = cached("/team/1", 0, 100);
+        responseCacheRegion.put("a", cached, responseCacheRegion.getGeneration());
+
+        Assertions.assertSame(cached, responseCacheRegion.get("a", 99));
+    }
+
+    @Test
+    void get_ShouldReturnNull_IfExpired() {
+        responseCacheRegion.put("a", cached("/team/1", 0, 100), responseCacheRegion.getGeneration());
+
+        Assertions.assertNull(responseCacheRegion.get("a", 100));
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyStored_IfFull() {
+        long generation = responseCacheRegion.getGeneration();
+        responseCacheRegion.put("a", cached("/team/1", 0, 100), generation);
+        responseCacheRegion.put("b", cached("/team/2", 0, 100), generation);
+        responseCacheRegion.put("a", cached("/team/1", 0, 100), generation);
+        responseCacheRegion.put("c", cached("/team/3", 0, 100), generation);
+
+        Assertions.assertNotNull(responseCacheRegion.get("a", 0));
+        Assertions.assertNull(responseCacheRegion.get("b", 0));
+        Assertions.assertNotNull(responseCacheRegion.get("c", 0));
+    }
+
+    @Test
+    void put_ShouldIgnoreResponse_IfInvalidatedSinceRequestStarted() {
+        long generation = responseCacheRegion.getGeneration();
+        responseCacheRegion.invalidate("/team/1");
+        responseCacheRegion.put("a", cached("/team/1", 0, 100), generation);
+
+        Assertions.assertNull(responseCacheRegion.get("a", 0));
+    }
+
+    @Test
+    void invalidate_ShouldRemoveSameChildAndParentPaths() {
+        ResponseCacheRegion region = new ResponseCacheRegion("team", Collections.emptySet(),
+                Collections.emptyList(), Collections.emptyList(), 10);
+        long generation = region.getGeneration();
+        region.put("parent", cached("/team", 0, 100), generation);
+        region.put("same", cached("/team/1", 0, 100), generation);
+        region.put("child", cached("/team/1/players", 0, 100), generation);
+        region.put("sibling", cached("/team/12", 0, 100), generation);
+
+        region.invalidate("/team/1");
+
+        Assertions.assertNull(region.get("parent", 0));
+        Assertions.assertNull(region.get("same", 0));
+        Assertions.assertNull(region.get("child", 0));
+        Assertions.assertNotNull(region.get("sibling", 0));
+    }
+
+    @Test
+    void invalidateDependents_ShouldRemoveOnlyInvalidatedPaths_IfConfigured() {
+        long generation = responseCacheRegion.getGeneration();
+        responseCacheRegion.put("a", cached("/team/1", 0, 100), generation);
+        responseCacheRegion.put("b", cached("/team/player/7", 0, 100), generation);
+
+        responseCacheRegion.invalidateDependents();
+
+        Assertions.assertNotNull(responseCacheRegion.get("a", 0));
+        Assertions.assertNull(responseCacheRegion.get("b", 0));
+        Assertions.assertNotEquals(generation, responseCacheRegion.getGeneration());
+    }
+
+    @Test
+    void invalidateDependents_ShouldClearRegion_IfNoInvalidatedPaths() {
+        ResponseCacheRegion region = new ResponseCacheRegion("team", Collections.emptySet(),
+                Collections.emptyList(), Collections.emptyList(), 10);
+        region.put("a", cached("/team/1", 0, 100), region.getGeneration());
+
+        region.invalidateDependents();
+
+        Assertions.assertNull(region.get("a", 0));
+    }
+
+    @Test
+    void isReadOnly_ShouldMatchConfiguredPaths() {
+        Assertions.assertTrue(responseCacheRegion.isReadOnly("/team/exist"));
+        Assertions.assertTrue(responseCacheRegion.isReadOnly("/team/existing"));
+        Assertions.assertFalse(responseCacheRegion.isReadOnly("/team"));
+    }
+
+}
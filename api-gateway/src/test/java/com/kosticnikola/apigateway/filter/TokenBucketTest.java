@@ -0,0 +1,59 @@
+package com.kosticnikola.apigateway.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class TokenBucketTest {
+
+    TokenBucket tokenBucket;
+
+    @BeforeEach
+    void setUp() {
+        tokenBucket = new TokenBucket(10, 5, 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldReturnFalse_IfBucketIsEmpty() {
+        Assertions.assertTrue(tokenBucket.tryAcquire(10, 0));
+        Assertions.assertFalse(tokenBucket.tryAcquire(1, 0));
+        Assertions.assertEquals(0, tokenBucket.remaining(0));
+    }
+
+    @Test
+    void tryAcquire_ShouldReturnTrue_IfRefilledSinceEmptied() {
+        tokenBucket.tryAcquire(10, 0);
+
+        Assertions.assertFalse(tokenBucket.tryAcquire(1, TimeUnit.MILLISECONDS.toNanos(100)));
+        Assertions.assertTrue(tokenBucket.tryAcquire(1, TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test
+    void remaining_ShouldNotExceedCapacity() {
+        tokenBucket.tryAcquire(4, 0);
+
+        Assertions.assertEquals(8, tokenBucket.remaining(TimeUnit.MILLISECONDS.toNanos(400)));
+        Assertions.assertEquals(10, tokenBucket.remaining(TimeUnit.SECONDS.toNanos(60)));
+    }
+
+    @Test
+    void release_ShouldReturnTokensUpToCapacity() {
+        tokenBucket.tryAcquire(3, 0);
+        tokenBucket.release(2);
+        Assertions.assertEquals(9, tokenBucket.remaining(0));
+
+        tokenBucket.release(5);
+        Assertions.assertEquals(10, tokenBucket.remaining(0));
+    }
+
+    @Test
+    void isFull_ShouldReturnTrue_IfRefilledToCapacity() {
+        tokenBucket.tryAcquire(5, 0);
+
+        Assertions.assertFalse(tokenBucket.isFull(TimeUnit.MILLISECONDS.toNanos(900)));
+        Assertions.assertTrue(tokenBucket.isFull(TimeUnit.SECONDS.toNanos(1)));
+    }
+
+}
@@ -2,15 +2,28 @@ package com.kosticnikola.player.controller;
 
 import com.kosticnikola.player.dto.CreatePlayerDTO;
 import com.kosticnikola.player.dto.UpdatePlayerDTO;
+import com.kosticnikola.player.entity.OutboxEvent;
+import com.kosticnikola.player.service.ChangeFeedService;
+import com.kosticnikola.player.service.PlayerImportService;
 import com.kosticnikola.player.service.PlayerService;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("api/player")
@@ -19,14 +32,59 @@ import javax.validation.Valid;
 public class PlayerController {
 
     private PlayerService playerService;
+    private PlayerImportService playerImportService;
+    private ChangeFeedService changeFeedService;
 
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
             @ApiResponse(code = 500, message = "Internal server error.")
     })
+    @GetMapping(value = "", params = {"!after", "!size"})
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return export();
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid cursor or page size. (size must be between 1 and 1000)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
     @GetMapping("")
-    public ResponseEntity<?> getAll() {
-        return ResponseEntity.ok().body(this.playerService.getAll());
+    public ResponseEntity<?> getPage(@RequestParam(value = "after", required = false) Long after,
+                                     @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) Integer size) {
+        return ResponseEntity.ok().body(this.playerService.getAll(after, size));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid offset, page size or wait. (size must be between 1 and 1000, waitMs at most 30000)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes")
+    public DeferredResult<List<OutboxEvent>> getChangesAfter(@RequestParam(value = "after", defaultValue = "0") Long after,
+                                                             @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) Integer size,
+                                                             @RequestParam(value = "waitMs", defaultValue = "0") @Min(0) @Max(30000) Long waitMs) {
+        return this.changeFeedService.getChangesAfter(after, size, waitMs);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes/head")
+    public ResponseEntity<?> getChangesHead() {
+        return ResponseEntity.ok().body(this.changeFeedService.getHead());
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> this.playerService.export(outputStream));
     }
 
     @ApiResponses(value = {
@@ -39,6 +97,16 @@ public class PlayerController {
         return ResponseEntity.ok().body(this.playerService.getById(id));
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid list of ids. (must contain at most 1000 ids)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @PostMapping("batch")
+    public ResponseEntity<?> getAllByIds(@RequestBody @Size(max = 1000) List<Long> ids) {
+        return ResponseEntity.ok().body(this.playerService.getAllByIds(ids));
+    }
+
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
             @ApiResponse(code = 400, message = "Invalid player name. (must be between 3 and 255 characters)"),
@@ -50,6 +118,20 @@ public class PlayerController {
         return ResponseEntity.ok().body(this.playerService.create(createPlayerDTO));
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful. (rows that could not be imported are listed in the report)"),
+            @ApiResponse(code = 415, message = "Unsupported content type. (must be application/x-ndjson or text/csv)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @PostMapping(value = "import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<?> importPlayers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           InputStream body) throws IOException {
+        PlayerImportService.Format format = MediaType.valueOf("text/csv").includes(contentType)
+                ? PlayerImportService.Format.CSV
+                : PlayerImportService.Format.NDJSON;
+        return ResponseEntity.ok().body(this.playerImportService.importPlayers(body, format));
+    }
+
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
             @ApiResponse(code = 400, message = "Invalid player name. (must be between 3 and 255 characters)"),
@@ -0,0 +1,18 @@
+package com.kosticnikola.player.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class PlayerDTO {
+
+    private final Long id;
+
+    private final Long upin;
+
+    private final String name;
+
+    private final LocalDate dateOfBirth;
+
+}
@@ -0,0 +1,18 @@
+package com.kosticnikola.player.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+public class PlayerImportErrorDTO {
+
+    private final long line;
+
+    private final String message;
+
+    private final Map<String, String> validationErrors;
+
+}
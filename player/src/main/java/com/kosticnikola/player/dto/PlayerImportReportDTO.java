@@ -0,0 +1,19 @@
+package com.kosticnikola.player.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class PlayerImportReportDTO {
+
+    private long imported;
+
+    private long failed;
+
+    private boolean errorsTruncated;
+
+    private final List<PlayerImportErrorDTO> errors = new ArrayList<>();
+
+}
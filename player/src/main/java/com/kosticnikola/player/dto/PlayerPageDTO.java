@@ -0,0 +1,15 @@
+package com.kosticnikola.player.dto;
+
+import com.kosticnikola.player.entity.Player;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PlayerPageDTO {
+
+    private final List<Player> players;
+
+    private final Long nextCursor;
+
+}
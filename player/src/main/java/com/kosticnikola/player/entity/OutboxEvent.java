@@ -0,0 +1,62 @@
+package com.kosticnikola.player.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    public static final String PLAYER = "PLAYER";
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    @JsonIgnore
+    @Id
+    @Column(name = "id")
+    @Getter
+    @Setter
+    private Long id;
+
+    @JsonProperty("offset")
+    @Column(name = "feed_offset")
+    @Getter
+    @Setter
+    private Long feedOffset;
+
+    @Column(name = "aggregate_type")
+    @Getter
+    @Setter
+    private String aggregateType;
+
+    @Column(name = "aggregate_id")
+    @Getter
+    @Setter
+    private Long aggregateId;
+
+    @Column(name = "event_type")
+    @Getter
+    @Setter
+    private String eventType;
+
+    @JsonRawValue
+    @Column(name = "payload")
+    @Getter
+    @Setter
+    private String payload;
+
+    @Column(name = "created_at")
+    @Getter
+    @Setter
+    private Timestamp createdAt;
+
+}
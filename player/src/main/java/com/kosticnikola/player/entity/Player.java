@@ -13,7 +13,8 @@ import java.time.LocalDate;
 public class Player {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "players_seq")
+    @SequenceGenerator(name = "players_seq", sequenceName = "players_seq", allocationSize = 50)
     @Column(name = "id")
     @Getter
     @Setter
@@ -4,10 +4,13 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +26,16 @@ public class APIExceptionHandler {
         return new ResponseEntity<>(new APIException(errors), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({ConstraintViolationException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<?> handleInvalidRequestParameterException() {
+        return new ResponseEntity<>(new APIException("Invalid request parameter(s)."), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<?> handleHttpMediaTypeNotSupportedException() {
+        return new ResponseEntity<>(new APIException("Unsupported content type."), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
     @ExceptionHandler(InvalidIDException.class)
     public ResponseEntity<?> handleInvalidIDException() {
         return new ResponseEntity<>(new APIException("Player with provided id doesn't exist."), HttpStatus.NOT_FOUND);
@@ -0,0 +1,60 @@
+package com.kosticnikola.player.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@AllArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT = "INSERT INTO outbox_events " +
+            "(aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        record(aggregateType, eventType, Collections.singletonList(payload), p -> aggregateId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> void record(String aggregateType, String eventType, List<T> payloads, Function<T, Long> aggregateId) {
+        if (payloads.isEmpty())
+            return;
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, payloads.stream()
+                .map(payload -> new Object[]{
+                        aggregateType,
+                        aggregateId.apply(payload),
+                        eventType,
+                        toJson(payload),
+                        createdAt
+                })
+                .collect(Collectors.toList()));
+    }
+
+    private String toJson(Object payload) {
+        if (payload == null)
+            return null;
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
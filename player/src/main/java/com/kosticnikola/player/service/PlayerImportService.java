@@ -0,0 +1,215 @@
+package com.kosticnikola.player.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.player.dto.CreatePlayerDTO;
+import com.kosticnikola.player.dto.PlayerImportErrorDTO;
+import com.kosticnikola.player.dto.PlayerImportReportDTO;
+import com.kosticnikola.player.entity.OutboxEvent;
+import com.kosticnikola.player.entity.Player;
+import com.kosticnikola.player.repository.PlayerRepository;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class PlayerImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private final PlayerRepository playerRepository;
+    private final OutboxService outboxService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public PlayerImportService(PlayerRepository playerRepository,
+                               OutboxService outboxService,
+                               ObjectMapper objectMapper,
+                               Validator validator,
+                               PlatformTransactionManager transactionManager,
+                               EntityManager entityManager,
+                               @Value("${player.import.batch-size:500}") int batchSize,
+                               @Value("${player.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.playerRepository = playerRepository;
+        this.outboxService = outboxService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public PlayerImportReportDTO importPlayers(InputStream inputStream, Format format) throws IOException {
+        PlayerImportReportDTO report = new PlayerImportReportDTO();
+        List<Row> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (format == Format.CSV && lineNumber == 1 && isCsvHeader(line)))
+                continue;
+            CreatePlayerDTO playerDTO;
+            try {
+                playerDTO = format == Format.NDJSON ? parseJson(line) : parseCsv(line);
+            } catch (IllegalArgumentException e) {
+                reportError(report, new PlayerImportErrorDTO(lineNumber, e.getMessage(), null));
+                continue;
+            }
+            Set<ConstraintViolation<CreatePlayerDTO>> violations = validator.validate(playerDTO);
+            if (!violations.isEmpty()) {
+                reportError(report, new PlayerImportErrorDTO(lineNumber, null, toValidationErrors(violations)));
+                continue;
+            }
+            batch.add(new Row(lineNumber, playerDTO));
+            if (batch.size() == batchSize)
+                flush(batch, report);
+        }
+        flush(batch, report);
+        return report;
+    }
+
+    private void flush(List<Row> batch, PlayerImportReportDTO report) {
+        if (batch.isEmpty())
+            return;
+        try {
+            transactionTemplate.execute(status -> {
+                List<Player> players = playerRepository.saveAllAndFlush(
+                        batch.stream().map(row -> toPlayer(row.getPlayerDTO())).collect(Collectors.toList()));
+                outboxService.record(OutboxEvent.PLAYER, OutboxEvent.CREATED, players, Player::getId);
+                entityManager.clear();
+                return players;
+            });
+            report.setImported(report.getImported() + batch.size());
+        } catch (DataIntegrityViolationException e) {
+            batch.forEach(row -> saveOne(row, report));
+        }
+        batch.clear();
+    }
+
+    private void saveOne(Row row, PlayerImportReportDTO report) {
+        try {
+            transactionTemplate.execute(status -> {
+                Player player = playerRepository.saveAndFlush(toPlayer(row.getPlayerDTO()));
+                outboxService.record(OutboxEvent.PLAYER, player.getId(), OutboxEvent.CREATED, player);
+                entityManager.clear();
+                return player;
+            });
+            report.setImported(report.getImported() + 1);
+        } catch (DataIntegrityViolationException e) {
+            reportError(report, new PlayerImportErrorDTO(row.getLine(), "Player with provided UPIN already exists.", null));
+        }
+    }
+
+    private void reportError(PlayerImportReportDTO report, PlayerImportErrorDTO error) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors)
+            report.getErrors().add(error);
+        else
+            report.setErrorsTruncated(true);
+    }
+
+    private CreatePlayerDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, CreatePlayerDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON row.");
+        }
+    }
+
+    private CreatePlayerDTO parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 3)
+            throw new IllegalArgumentException("Expected 3 columns (upin,name,dateOfBirth) but found " + fields.size() + ".");
+        try {
+            return new CreatePlayerDTO(
+                    fields.get(0).isEmpty() ? null : Long.valueOf(fields.get(0)),
+                    fields.get(1).isEmpty() ? null : fields.get(1),
+                    fields.get(2).isEmpty() ? null : LocalDate.parse(fields.get(2))
+            );
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed CSV row.");
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase().startsWith("upin");
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static Map<String, String> toValidationErrors(Set<ConstraintViolation<CreatePlayerDTO>> violations) {
+        Map<String, String> errors = new HashMap<>();
+        violations.forEach(violation -> errors.put(
+                violation.getPropertyPath().toString(),
+                StringUtils.capitalize(violation.getMessage())
+        ));
+        return errors;
+    }
+
+    private static Player toPlayer(CreatePlayerDTO playerDTO) {
+        return new Player(playerDTO.getUpin(), playerDTO.getName(), playerDTO.getDateOfBirth());
+    }
+
+    @Data
+    private static class Row {
+
+        private final long line;
+
+        private final CreatePlayerDTO playerDTO;
+
+    }
+
+}
@@ -1,54 +1,134 @@
 package com.kosticnikola.player.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kosticnikola.player.dto.CreatePlayerDTO;
+import com.kosticnikola.player.dto.PlayerDTO;
+import com.kosticnikola.player.dto.PlayerPageDTO;
 import com.kosticnikola.player.dto.UpdatePlayerDTO;
+import com.kosticnikola.player.entity.OutboxEvent;
 import com.kosticnikola.player.entity.Player;
 import com.kosticnikola.player.exception.InvalidIDException;
 import com.kosticnikola.player.repository.PlayerRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class PlayerService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String PLAYERS_CACHE = "players";
     
     private PlayerRepository playerRepository;
+    private OutboxService outboxService;
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
+    private CacheManager cacheManager;
+
+    public PlayerPageDTO getAll(Long after, int size) {
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Player> players = playerRepository.findAllByIdGreaterThanOrderByIdAsc(
+                after == null ? 0L : after,
+                PageRequest.of(0, size)
+        );
+        Long nextCursor = players.size() < size ? null : players.get(players.size() - 1).getId();
+        return new PlayerPageDTO(players, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void export(OutputStream outputStream) throws IOException {
+        try (Stream<Player> players = playerRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            Iterator<Player> iterator = players.iterator();
+            while (iterator.hasNext()) {
+                Player player = iterator.next();
+                generator.writeObject(player);
+                entityManager.detach(player);
+            }
+            generator.writeEndArray();
+        }
+    }
 
-    public List<Player> getAll() {
-        return playerRepository.findAll();
+    @Cacheable(value = PLAYERS_CACHE, key = "#id")
+    public PlayerDTO getById(Long id) {
+        return playerRepository.findById(id).map(PlayerService::toDTO).orElseThrow(InvalidIDException::new);
     }
 
-    public Player getById(Long id) {
-        return playerRepository.findById(id).orElseThrow(InvalidIDException::new);
+    public List<Player> getAllByIds(List<Long> ids) {
+        return playerRepository.findAllById(ids);
     }
     
+    @Transactional
     public Player create(CreatePlayerDTO playerDTO) {
-        return playerRepository.save(new Player(
+        Player player = playerRepository.save(new Player(
                 playerDTO.getUpin(),
                 playerDTO.getName(),
                 playerDTO.getDateOfBirth()
         ));
+        outboxService.record(OutboxEvent.PLAYER, player.getId(), OutboxEvent.CREATED, player);
+        return player;
     }
 
+    @Transactional
     public Player update(UpdatePlayerDTO playerDTO) {
-        Optional<Player> optionalPlayer = playerRepository.findById(playerDTO.getId());
+        Optional<Player> optionalPlayer = playerRepository.findByIdForUpdate(playerDTO.getId());
         if (optionalPlayer.isPresent()) {
             optionalPlayer.get().setUPIN(playerDTO.getUpin());
             optionalPlayer.get().setName(playerDTO.getName());
             optionalPlayer.get().setDateOfBirth(playerDTO.getDateOfBirth());
-            return playerRepository.save(optionalPlayer.get());
+            Player player = playerRepository.save(optionalPlayer.get());
+            outboxService.record(OutboxEvent.PLAYER, player.getId(), OutboxEvent.UPDATED, player);
+            evictAfterCommit(player.getId());
+            return player;
         }
         throw new InvalidIDException();
     }
 
+    @Transactional
     public void deleteById(Long id) {
-        Optional<Player> optionalPlayer = playerRepository.findById(id);
-        if (optionalPlayer.isPresent())
-            playerRepository.deleteById(id);
-        throw new InvalidIDException();
+        Optional<Player> optionalPlayer = playerRepository.findByIdForUpdate(id);
+        if (!optionalPlayer.isPresent())
+            throw new InvalidIDException();
+        playerRepository.deleteById(id);
+        outboxService.record(OutboxEvent.PLAYER, id, OutboxEvent.DELETED, null);
+        evictAfterCommit(id);
+    }
+
+    private void evictAfterCommit(Long id) {
+        Cache cache = cacheManager.getCache(PLAYERS_CACHE);
+        if (cache == null)
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evict(id);
+            }
+        });
+    }
+
+    private static PlayerDTO toDTO(Player player) {
+        return new PlayerDTO(player.getId(), player.getUPIN(), player.getName(), player.getDateOfBirth());
     }
 
 }
@@ -0,0 +1,138 @@
+package com.kosticnikola.player.controller;
+
+import com.kosticnikola.player.dto.PlayerPageDTO;
+import com.kosticnikola.player.entity.Player;
+import com.kosticnikola.player.exception.APIExceptionHandler;
+import com.kosticnikola.player.service.ChangeFeedService;
+import com.kosticnikola.player.service.PlayerImportService;
+import com.kosticnikola.player.service.PlayerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PlayerControllerTest {
+
+    List<Player> players;
+
+    MockMvc mockMvc;
+
+    @Mock
+    PlayerService playerService;
+
+    @Mock
+    PlayerImportService playerImportService;
+
+    @Mock
+    ChangeFeedService changeFeedService;
+
+    @InjectMocks
+    PlayerController playerController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(playerController)
+                .setControllerAdvice(new APIExceptionHandler())
+                .build();
+    }
+
+    void setUpPlayers() {
+        players = Arrays.asList(player(1L, "Peter"), player(2L, "Marko"));
+    }
+
+    static Player player(Long id, String name) {
+        Player player = new Player(id * 100, name, LocalDate.of(1990, 1, 1));
+        player.setId(id);
+        return player;
+    }
+
+    void setUpExport() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write("[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(playerService).export(Mockito.any(OutputStream.class));
+    }
+
+    @Test
+    void getPage_ShouldReturnAPageWithTheNextCursor_IfACursorIsGiven() throws Exception {
+        setUpPlayers();
+        Mockito.when(playerService.getAll(5L, 2)).thenReturn(new PlayerPageDTO(players, 2L));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/player?after=5&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.players[1].name").value("Marko"))
+                .andExpect(jsonPath("$.nextCursor").value(2));
+    }
+
+    @Test
+    void getPage_ShouldUseTheDefaultPageSize_IfOnlyACursorIsGiven() throws Exception {
+        setUpPlayers();
+        Mockito.when(playerService.getAll(5L, 100)).thenReturn(new PlayerPageDTO(players, null));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/player?after=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.players.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getAll_ShouldStreamEveryPlayerAsAnArray_IfNeitherCursorNorSizeIsGiven() throws Exception {
+        setUpExport();
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/player"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].id").value(2));
+        Mockito.verify(playerService, Mockito.never()).getAll(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void getPage_ShouldReturnAPage_IfOnlyASizeIsGiven() throws Exception {
+        setUpPlayers();
+        Mockito.when(playerService.getAll(null, 2)).thenReturn(new PlayerPageDTO(players, 2L));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/player?size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value(2));
+    }
+
+    @Test
+    void getPage_ShouldReturnBadRequest_IfTheCursorIsNotANumber() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/player?after=abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_ShouldStreamEveryPlayerAsAnArray() throws Exception {
+        setUpExport();
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/player/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+}
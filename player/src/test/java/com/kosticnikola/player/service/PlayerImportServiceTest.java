@@ -0,0 +1,167 @@
+package com.kosticnikola.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.player.dto.PlayerImportErrorDTO;
+import com.kosticnikola.player.dto.PlayerImportReportDTO;
+import com.kosticnikola.player.entity.OutboxEvent;
+import com.kosticnikola.player.entity.Player;
+import com.kosticnikola.player.repository.PlayerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+
+class PlayerImportServiceTest {
+
+    @Mock
+    PlayerRepository playerRepository;
+
+    @Mock
+    OutboxService outboxService;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    EntityManager entityManager;
+
+    PlayerImportService playerImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        playerImportService = new PlayerImportService(
+                playerRepository,
+                outboxService,
+                new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionManager,
+                entityManager,
+                2,
+                2
+        );
+        Mockito.when(playerRepository.saveAllAndFlush(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(playerRepository.saveAndFlush(Mockito.any(Player.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    PlayerImportReportDTO importPlayers(PlayerImportService.Format format, String... lines) throws IOException {
+        byte[] content = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return playerImportService.importPlayers(new ByteArrayInputStream(content), format);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Player> savedBatch(int batch) {
+        ArgumentCaptor<List<Player>> argument = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(playerRepository, Mockito.atLeast(batch + 1)).saveAllAndFlush(argument.capture());
+        return argument.getAllValues().get(batch);
+    }
+
+    @Test
+    void importPlayers_ShouldSaveCsvRowsInBatches_IfEveryRowIsValid() throws IOException {
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.CSV,
+                "upin,name,dateOfBirth",
+                "1,\"O\"\"Neil, Jr\",1990-01-01",
+                " 2 , Peter , 1991-02-03 ",
+                "",
+                "3,Marko,1992-03-04");
+
+        Assertions.assertEquals(3, report.getImported());
+        Assertions.assertEquals(0, report.getFailed());
+        Mockito.verify(playerRepository, Mockito.times(2)).saveAllAndFlush(Mockito.anyList());
+        Player quoted = savedBatch(0).get(0);
+        Assertions.assertEquals(1L, quoted.getUPIN());
+        Assertions.assertEquals("O\"Neil, Jr", quoted.getName());
+        Assertions.assertEquals(LocalDate.of(1991, 2, 3), savedBatch(0).get(1).getDateOfBirth());
+        Assertions.assertEquals(1, savedBatch(1).size());
+        Mockito.verify(outboxService, Mockito.times(2)).record(
+                Mockito.eq(OutboxEvent.PLAYER), Mockito.eq(OutboxEvent.CREATED), Mockito.anyList(), Mockito.<Function<Player, Long>>any());
+        Mockito.verify(entityManager, Mockito.times(2)).clear();
+    }
+
+    @Test
+    void importPlayers_ShouldImportTheFirstCsvRow_IfItIsNotAHeader() throws IOException {
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.CSV, "1,Peter,1990-01-01");
+
+        Assertions.assertEquals(1, report.getImported());
+        Assertions.assertEquals("Peter", savedBatch(0).get(0).getName());
+    }
+
+    @Test
+    void importPlayers_ShouldReportTheLineOfEveryMalformedRow() throws IOException {
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.CSV,
+                "upin,name,dateOfBirth",
+                "1,Peter",
+                "x,Peter,1990-01-01",
+                "3,Marko,1992-03-04");
+
+        Assertions.assertEquals(1, report.getImported());
+        Assertions.assertEquals(2, report.getFailed());
+        Assertions.assertFalse(report.isErrorsTruncated());
+        Assertions.assertEquals(2, report.getErrors().size());
+        PlayerImportErrorDTO columns = report.getErrors().get(0);
+        Assertions.assertEquals(2, columns.getLine());
+        Assertions.assertEquals("Expected 3 columns (upin,name,dateOfBirth) but found 2.", columns.getMessage());
+        PlayerImportErrorDTO malformed = report.getErrors().get(1);
+        Assertions.assertEquals(3, malformed.getLine());
+        Assertions.assertEquals("Malformed CSV row.", malformed.getMessage());
+    }
+
+    @Test
+    void importPlayers_ShouldReportValidationErrorsPerField_IfARowIsInvalid() throws IOException {
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.NDJSON,
+                "{\"upin\":1,\"name\":\"\",\"dateOfBirth\":\"1990-01-01\"}",
+                "{\"upin\":2,");
+
+        Assertions.assertEquals(0, report.getImported());
+        Assertions.assertEquals(2, report.getFailed());
+        PlayerImportErrorDTO invalid = report.getErrors().get(0);
+        Assertions.assertEquals(1, invalid.getLine());
+        Assertions.assertNull(invalid.getMessage());
+        Assertions.assertTrue(invalid.getValidationErrors().containsKey("name"));
+        Assertions.assertEquals("Malformed JSON row.", report.getErrors().get(1).getMessage());
+        Mockito.verifyNoInteractions(playerRepository, outboxService);
+    }
+
+    @Test
+    void importPlayers_ShouldSaveRowsOneByOne_IfTheBatchViolatedAConstraint() throws IOException {
+        Mockito.when(playerRepository.saveAllAndFlush(Mockito.anyList())).thenThrow(DataIntegrityViolationException.class);
+        Mockito.when(playerRepository.saveAndFlush(Mockito.argThat(player -> player != null && player.getUPIN() == 2L)))
+                .thenThrow(DataIntegrityViolationException.class);
+
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.NDJSON,
+                "{\"upin\":1,\"name\":\"Peter\",\"dateOfBirth\":\"1990-01-01\"}",
+                "{\"upin\":2,\"name\":\"Marko\",\"dateOfBirth\":\"1991-01-01\"}");
+
+        Assertions.assertEquals(1, report.getImported());
+        Assertions.assertEquals(1, report.getFailed());
+        Assertions.assertEquals(2, report.getErrors().get(0).getLine());
+        Assertions.assertEquals("Player with provided UPIN already exists.", report.getErrors().get(0).getMessage());
+        Mockito.verify(playerRepository, Mockito.times(2)).saveAndFlush(Mockito.any(Player.class));
+        Mockito.verify(outboxService).record(Mockito.eq(OutboxEvent.PLAYER), Mockito.any(), Mockito.eq(OutboxEvent.CREATED), Mockito.any(Player.class));
+        Mockito.verify(transactionManager, Mockito.times(2)).rollback(Mockito.any());
+    }
+
+    @Test
+    void importPlayers_ShouldCapTheReportedErrors_IfMoreRowsFailThanMaxReportedErrors() throws IOException {
+        PlayerImportReportDTO report = importPlayers(PlayerImportService.Format.CSV, "a", "b", "c");
+
+        Assertions.assertEquals(3, report.getFailed());
+        Assertions.assertEquals(2, report.getErrors().size());
+        Assertions.assertTrue(report.isErrorsTruncated());
+    }
+
+}
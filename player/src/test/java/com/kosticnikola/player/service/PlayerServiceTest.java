@@ -0,0 +1,220 @@
+package com.kosticnikola.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.player.dto.PlayerDTO;
+import com.kosticnikola.player.dto.PlayerPageDTO;
+import com.kosticnikola.player.dto.UpdatePlayerDTO;
+import com.kosticnikola.player.entity.Player;
+import com.kosticnikola.player.exception.InvalidIDException;
+import com.kosticnikola.player.repository.PlayerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+class PlayerServiceTest {
+
+    List<Player> players;
+
+    @Mock
+    PlayerRepository playerRepository;
+
+    @Mock
+    OutboxService outboxService;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    CacheManager cacheManager;
+
+    @Mock
+    Cache cache;
+
+    PlayerService playerService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        playerService = new PlayerService(playerRepository, outboxService, entityManager,
+                new ObjectMapper().findAndRegisterModules(), cacheManager);
+        Mockito.when(cacheManager.getCache(PlayerService.PLAYERS_CACHE)).thenReturn(cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    void setUpPlayers() {
+        players = Arrays.asList(
+                player(3L, "Peter"),
+                player(5L, "Marko"),
+                player(8L, "Nikola")
+        );
+    }
+
+    static Player player(Long id, String name) {
+        Player player = new Player(id * 100, name, LocalDate.of(1990, 1, 1));
+        player.setId(id);
+        return player;
+    }
+
+    @Test
+    void getAll_ShouldStartFromTheFirstPlayer_IfNoCursorIsGiven() {
+        setUpPlayers();
+        Mockito.when(playerRepository.findAllByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 3))).thenReturn(players);
+
+        PlayerPageDTO page = playerService.getAll(null, 3);
+
+        Assertions.assertEquals(players, page.getPlayers());
+        Assertions.assertEquals(8L, page.getNextCursor());
+    }
+
+    @Test
+    void getAll_ShouldReturnPlayersAfterTheCursor() {
+        setUpPlayers();
+        Mockito.when(playerRepository.findAllByIdGreaterThanOrderByIdAsc(3L, PageRequest.of(0, 2)))
+                .thenReturn(players.subList(1, 3));
+
+        PlayerPageDTO page = playerService.getAll(3L, 2);
+
+        Assertions.assertEquals(players.subList(1, 3), page.getPlayers());
+        Assertions.assertEquals(8L, page.getNextCursor());
+    }
+
+    @Test
+    void getAll_ShouldReturnNoNextCursor_IfThePageIsTheLastOne() {
+        setUpPlayers();
+        Mockito.when(playerRepository.findAllByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 2)))
+                .thenReturn(players.subList(2, 3));
+
+        PlayerPageDTO page = playerService.getAll(5L, 2);
+
+        Assertions.assertEquals(players.subList(2, 3), page.getPlayers());
+        Assertions.assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getAll_ShouldReturnAnEmptyPageWithoutNextCursor_IfNoPlayersAreLeft() {
+        Mockito.when(playerRepository.findAllByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(Collections.emptyList());
+
+        PlayerPageDTO page = playerService.getAll(8L, 2);
+
+        Assertions.assertTrue(page.getPlayers().isEmpty());
+        Assertions.assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getAll_ShouldClampThePageSize() {
+        playerService.getAll(null, 5000);
+        playerService.getAll(null, 0);
+
+        Mockito.verify(playerRepository).findAllByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, PlayerService.MAX_PAGE_SIZE));
+        Mockito.verify(playerRepository).findAllByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1));
+    }
+
+    @Test
+    void export_ShouldWriteEveryPlayerAsAJsonArrayAndDetachIt() throws IOException {
+        setUpPlayers();
+        Mockito.when(playerRepository.streamAll()).thenReturn(players.stream());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        playerService.export(outputStream);
+
+        Player[] exported = new ObjectMapper().findAndRegisterModules()
+                .readValue(outputStream.toString(StandardCharsets.UTF_8.name()), Player[].class);
+        Assertions.assertEquals(3, exported.length);
+        Assertions.assertEquals(5L, exported[1].getId());
+        Assertions.assertEquals("Nikola", exported[2].getName());
+        players.forEach(player -> Mockito.verify(entityManager).detach(player));
+    }
+
+    @Test
+    void export_ShouldWriteAnEmptyArray_IfThereAreNoPlayers() throws IOException {
+        Mockito.when(playerRepository.streamAll()).thenReturn(Stream.empty());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        playerService.export(outputStream);
+
+        Assertions.assertEquals("[]", outputStream.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    void getById_ShouldReturnAnImmutableCopyOfThePlayer() {
+        Player player = player(3L, "Peter");
+        Mockito.when(playerRepository.findById(3L)).thenReturn(Optional.of(player));
+
+        PlayerDTO playerDTO = playerService.getById(3L);
+        player.setName("Changed");
+
+        Assertions.assertEquals(new PlayerDTO(3L, 300L, "Peter", LocalDate.of(1990, 1, 1)), playerDTO);
+    }
+
+    @Test
+    void getById_ShouldThrowInvalidIDException_IfThePlayerDoesNotExist() {
+        Mockito.when(playerRepository.findById(3L)).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(InvalidIDException.class, () -> playerService.getById(3L));
+    }
+
+    @Test
+    void update_ShouldEvictTheCachedPlayerOnlyAfterCommit() {
+        Player player = player(3L, "Peter");
+        Mockito.when(playerRepository.findByIdForUpdate(3L)).thenReturn(Optional.of(player));
+        Mockito.when(playerRepository.save(player)).thenReturn(player);
+        TransactionSynchronizationManager.initSynchronization();
+
+        playerService.update(new UpdatePlayerDTO(3L, 301L, "Marko", LocalDate.of(1991, 1, 1)));
+
+        Mockito.verify(cache, Mockito.never()).evict(Mockito.any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Mockito.verify(cache).evict(3L);
+    }
+
+    @Test
+    void update_ShouldNotTouchTheCache_IfTheTransactionRollsBack() {
+        Player player = player(3L, "Peter");
+        Mockito.when(playerRepository.findByIdForUpdate(3L)).thenReturn(Optional.of(player));
+        Mockito.when(playerRepository.save(player)).thenReturn(player);
+        TransactionSynchronizationManager.initSynchronization();
+
+        playerService.update(new UpdatePlayerDTO(3L, 301L, "Marko", LocalDate.of(1991, 1, 1)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        Mockito.verifyNoInteractions(cache);
+    }
+
+    @Test
+    void deleteById_ShouldEvictTheCachedPlayer() {
+        Mockito.when(playerRepository.findByIdForUpdate(3L)).thenReturn(Optional.of(player(3L, "Peter")));
+
+        playerService.deleteById(3L);
+
+        Mockito.verify(playerRepository).deleteById(3L);
+        Mockito.verify(cache).evict(3L);
+    }
+
+}
@@ -1,16 +1,25 @@
 package com.kosticnikola.team.controller;
 
+import com.kosticnikola.team.entity.OutboxEvent;
+import com.kosticnikola.team.service.ChangeFeedService;
+import com.kosticnikola.team.service.PlayerTeamProjectionService;
+import com.kosticnikola.team.service.TeamCatalogService;
 import com.kosticnikola.team.service.TeamService;
 import com.kosticnikola.team.dto.CreateTeamDTO;
 import com.kosticnikola.team.dto.UpdateTeamDTO;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import java.util.List;
 
 @RestController
@@ -20,14 +29,47 @@ import java.util.List;
 public class TeamController {
 
     private TeamService teamService;
+    private PlayerTeamProjectionService playerTeamProjectionService;
+    private TeamCatalogService teamCatalogService;
+    private ChangeFeedService changeFeedService;
 
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 304, message = "Not modified."),
             @ApiResponse(code = 500, message = "Internal server error.")
     })
     @GetMapping("")
-    public ResponseEntity<?> getAll() {
-        return ResponseEntity.ok().body(this.teamService.getAll());
+    public ResponseEntity<?> getAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        TeamCatalogService.Snapshot snapshot = this.teamCatalogService.getSnapshot();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (TeamCatalogService.Snapshot.acceptsGzip(acceptEncoding))
+            return response.eTag(snapshot.getGzipETag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.getGzipJson());
+        return response.eTag(snapshot.getETag()).body(snapshot.getJson());
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid offset, page size or wait. (size must be between 1 and 1000, waitMs at most 30000)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes")
+    public DeferredResult<List<OutboxEvent>> getChangesAfter(@RequestParam(value = "after", defaultValue = "0") Long after,
+                                                             @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) Integer size,
+                                                             @RequestParam(value = "waitMs", defaultValue = "0") @Min(0) @Max(30000) Long waitMs) {
+        return this.changeFeedService.getChangesAfter(after, size, waitMs);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes/head")
+    public ResponseEntity<?> getChangesHead() {
+        return ResponseEntity.ok().body(this.changeFeedService.getHead());
     }
 
     @ApiResponses(value = {
@@ -40,6 +82,16 @@ public class TeamController {
         return ResponseEntity.ok().body(this.teamService.getPlayerTeams(playerId));
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @PostMapping("player/rebuild")
+    public ResponseEntity<?> rebuildPlayerTeams() {
+        this.playerTeamProjectionService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+
     @ApiResponses(value = {
             @ApiResponse(code = 204, message = "Successful."),
             @ApiResponse(code = 404, message = "Invalid team ID."),
@@ -51,6 +103,15 @@ public class TeamController {
         return ResponseEntity.noContent().build();
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @PostMapping("existing")
+    public ResponseEntity<?> getExistingIds(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok().body(this.teamService.getExistingIds(ids));
+    }
+
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
             @ApiResponse(code = 400, message = "Invalid team name. (must be between 3 and 255 characters)"),
@@ -0,0 +1,16 @@
+package com.kosticnikola.team.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferChangeDTO {
+
+    private Long offset;
+    private String eventType;
+    private TransferDTO payload;
+
+}
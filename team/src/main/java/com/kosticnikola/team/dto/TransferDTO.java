@@ -0,0 +1,16 @@
+package com.kosticnikola.team.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferDTO {
+
+    private Long id;
+    private Long playerId;
+    private Long newTeamId;
+
+}
@@ -0,0 +1,41 @@
+package com.kosticnikola.team.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "player_teams")
+@IdClass(PlayerTeam.PlayerTeamId.class)
+public class PlayerTeam {
+
+    @Id
+    @Column(name = "player_id")
+    @Getter
+    @Setter
+    private Long playerId;
+
+    @Id
+    @Column(name = "team_id")
+    @Getter
+    @Setter
+    private Long teamId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PlayerTeamId implements Serializable {
+
+        private Long playerId;
+        private Long teamId;
+
+    }
+
+}
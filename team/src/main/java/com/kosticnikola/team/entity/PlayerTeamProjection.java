@@ -0,0 +1,29 @@
+package com.kosticnikola.team.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "player_team_projection")
+public class PlayerTeamProjection {
+
+    public static final Long ID = 1L;
+
+    @Id
+    @Column(name = "id")
+    @Getter
+    @Setter
+    private Long id;
+
+    @Column(name = "last_offset")
+    @Getter
+    @Setter
+    private Long lastOffset;
+
+}
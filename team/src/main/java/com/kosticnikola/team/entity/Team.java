@@ -14,7 +14,8 @@ import javax.persistence.*;
 public class Team {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "teams_seq")
+    @SequenceGenerator(name = "teams_seq", sequenceName = "teams_seq", allocationSize = 50)
     @Column(name = "id")
     @Getter
     @Setter
@@ -9,7 +9,9 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +27,11 @@ public class APIExceptionHandler {
         return new ResponseEntity<>(new APIException(errors), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({ConstraintViolationException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<?> handleInvalidRequestParameterException() {
+        return new ResponseEntity<>(new APIException("Invalid request parameter(s)."), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(InvalidIDException.class)
     public ResponseEntity<?> handleInvalidIDException() {
         return new ResponseEntity<>(new APIException("Invalid team id(s)."), HttpStatus.BAD_REQUEST);
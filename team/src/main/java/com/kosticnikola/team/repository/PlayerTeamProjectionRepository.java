@@ -0,0 +1,27 @@
+package com.kosticnikola.team.repository;
+
+import com.kosticnikola.team.entity.PlayerTeamProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlayerTeamProjectionRepository extends JpaRepository<PlayerTeamProjection, Long> {
+
+    @Modifying
+    @Query("UPDATE PlayerTeamProjection p SET p.lastOffset = :lastOffset " +
+            "WHERE p.id = :id AND p.lastOffset IS NULL")
+    void start(@Param("id") Long id, @Param("lastOffset") Long lastOffset);
+
+    @Modifying
+    @Query("UPDATE PlayerTeamProjection p SET p.lastOffset = :lastOffset " +
+            "WHERE p.id = :id AND p.lastOffset < :lastOffset")
+    void advance(@Param("id") Long id, @Param("lastOffset") Long lastOffset);
+
+    @Modifying
+    @Query("UPDATE PlayerTeamProjection p SET p.lastOffset = NULL WHERE p.id = :id")
+    void reset(@Param("id") Long id);
+
+}
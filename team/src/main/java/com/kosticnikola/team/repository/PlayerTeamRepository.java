@@ -0,0 +1,18 @@
+package com.kosticnikola.team.repository;
+
+import com.kosticnikola.team.entity.PlayerTeam;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlayerTeamRepository extends JpaRepository<PlayerTeam, PlayerTeam.PlayerTeamId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO player_teams (player_id, team_id) VALUES (:playerId, :teamId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    void insertIfAbsent(@Param("playerId") Long playerId, @Param("teamId") Long teamId);
+
+}
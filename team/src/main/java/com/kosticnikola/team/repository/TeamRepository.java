@@ -2,8 +2,29 @@ package com.kosticnikola.team.repository;
 
 import com.kosticnikola.team.entity.Team;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    long countByIdIn(Collection<Long> ids);
+
+    @Query("SELECT t FROM Team t WHERE t.id IN (SELECT pt.teamId FROM PlayerTeam pt WHERE pt.playerId = :playerId)")
+    List<Team> findAllByPlayerId(@Param("playerId") Long playerId);
+
+    @Query("SELECT t.id FROM Team t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Team t WHERE t.id = :id")
+    Optional<Team> findByIdForUpdate(@Param("id") Long id);
+
 }
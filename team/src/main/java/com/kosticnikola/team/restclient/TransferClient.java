@@ -1,8 +1,11 @@
 package com.kosticnikola.team.restclient;
 
+import com.kosticnikola.team.dto.TransferChangeDTO;
+import com.kosticnikola.team.dto.TransferDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -12,4 +15,13 @@ public interface TransferClient {
     @GetMapping("api/transfer/teams/{playerId}")
     List<Long> getPlayerTeams(@PathVariable Long playerId);
 
+    @GetMapping("api/transfer")
+    List<TransferDTO> getTransfers(@RequestParam("after") Long after, @RequestParam("size") Integer size);
+
+    @GetMapping("api/transfer/changes")
+    List<TransferChangeDTO> getChanges(@RequestParam("after") Long after, @RequestParam("size") Integer size);
+
+    @GetMapping("api/transfer/changes/head")
+    Long getChangesHead();
+
 }
@@ -0,0 +1,114 @@
+package com.kosticnikola.team.service;
+
+import com.kosticnikola.team.entity.OutboxEvent;
+import com.kosticnikola.team.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Service
+public class ChangeFeedService {
+
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int relayBatchSize;
+    private final long retentionHours;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile long head;
+
+    public ChangeFeedService(OutboxEventRepository outboxEventRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${team.outbox.relay-batch-size:1000}") int relayBatchSize,
+                             @Value("${team.outbox.retention-hours:168}") long retentionHours) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.relayBatchSize = relayBatchSize;
+        this.retentionHours = retentionHours;
+        Gauge.builder("team.outbox.head", this, ChangeFeedService::getHead)
+                .register(meterRegistry);
+        Gauge.builder("team.outbox.waiters", waiters, Queue::size)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${team.outbox.relay-interval-ms:200}")
+    public void relay() {
+        Integer published;
+        do {
+            published = transactionTemplate.execute(status -> outboxEventRepository.tryLock(RELAY_LOCK_KEY)
+                    ? outboxEventRepository.publishPending(relayBatchSize)
+                    : 0);
+        } while (published != null && published == relayBatchSize);
+
+        long current = outboxEventRepository.findHead();
+        if (current > head) {
+            head = current;
+            waiters.forEach(this::complete);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${team.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(before));
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public DeferredResult<List<OutboxEvent>> getChangesAfter(Long after, int size, long waitMillis) {
+        DeferredResult<List<OutboxEvent>> result = new DeferredResult<>(waitMillis, Collections.emptyList());
+        List<OutboxEvent> events = find(after, size);
+        if (!events.isEmpty() || waitMillis == 0) {
+            result.setResult(events);
+            return result;
+        }
+
+        Waiter waiter = new Waiter(after, size, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        if (head > after)
+            complete(waiter);
+        return result;
+    }
+
+    private void complete(Waiter waiter) {
+        if (head <= waiter.after || waiter.result.isSetOrExpired())
+            return;
+        waiters.remove(waiter);
+        waiter.result.setResult(find(waiter.after, waiter.size));
+    }
+
+    private List<OutboxEvent> find(Long after, int size) {
+        return outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(after, PageRequest.of(0, size));
+    }
+
+    private static class Waiter {
+        private final Long after;
+        private final int size;
+        private final DeferredResult<List<OutboxEvent>> result;
+
+        private Waiter(Long after, int size, DeferredResult<List<OutboxEvent>> result) {
+            this.after = after;
+            this.size = size;
+            this.result = result;
+        }
+    }
+
+}
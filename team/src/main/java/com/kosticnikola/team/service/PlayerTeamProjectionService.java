@@ -0,0 +1,118 @@
+package com.kosticnikola.team.service;
+
+import com.kosticnikola.team.dto.TransferChangeDTO;
+import com.kosticnikola.team.dto.TransferDTO;
+import com.kosticnikola.team.entity.PlayerTeamProjection;
+import com.kosticnikola.team.repository.PlayerTeamProjectionRepository;
+import com.kosticnikola.team.repository.PlayerTeamRepository;
+import com.kosticnikola.team.restclient.TransferClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class PlayerTeamProjectionService {
+
+    private final PlayerTeamRepository playerTeamRepository;
+    private final PlayerTeamProjectionRepository projectionRepository;
+    private final TransferClient transferClient;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final AtomicLong lastOffset = new AtomicLong();
+    private volatile long caughtUpAt = System.currentTimeMillis();
+
+    public PlayerTeamProjectionService(PlayerTeamRepository playerTeamRepository,
+                                       PlayerTeamProjectionRepository projectionRepository,
+                                       TransferClient transferClient,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${team.player-teams.page-size:500}") int pageSize) {
+        this.playerTeamRepository = playerTeamRepository;
+        this.projectionRepository = projectionRepository;
+        this.transferClient = transferClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+        Gauge.builder("team.player-teams.staleness", this, s -> s.getStalenessMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("team.player-teams.last-offset", lastOffset, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${team.player-teams.poll-interval-ms:1000}")
+    public synchronized void catchUp() {
+        if (!findCheckpoint().isPresent())
+            bootstrap();
+        while (applyNextChanges()) ;
+        caughtUpAt = System.currentTimeMillis();
+    }
+
+    public synchronized void rebuild() {
+        transactionTemplate.execute(status -> {
+            projectionRepository.reset(PlayerTeamProjection.ID);
+            playerTeamRepository.deleteAllInBatch();
+            return null;
+        });
+        catchUp();
+    }
+
+    public long getStalenessMillis() {
+        return System.currentTimeMillis() - caughtUpAt;
+    }
+
+    private Optional<Long> findCheckpoint() {
+        return projectionRepository.findById(PlayerTeamProjection.ID)
+                .map(PlayerTeamProjection::getLastOffset);
+    }
+
+    private void bootstrap() {
+        Long head = transferClient.getChangesHead();
+        long after = 0;
+        List<TransferDTO> transfers;
+        do {
+            transfers = transferClient.getTransfers(after, pageSize);
+            if (transfers.isEmpty())
+                break;
+            List<TransferDTO> page = transfers;
+            transactionTemplate.execute(status -> {
+                page.forEach(t -> playerTeamRepository.insertIfAbsent(t.getPlayerId(), t.getNewTeamId()));
+                return null;
+            });
+            after = transfers.get(transfers.size() - 1).getId();
+        } while (transfers.size() == pageSize);
+        transactionTemplate.execute(status -> {
+            projectionRepository.start(PlayerTeamProjection.ID, head);
+            return null;
+        });
+    }
+
+    private boolean applyNextChanges() {
+        Long after = findCheckpoint().orElse(0L);
+        List<TransferChangeDTO> changes = transferClient.getChanges(after, pageSize);
+        if (changes.isEmpty()) {
+            lastOffset.set(after);
+            return false;
+        }
+        Long last = changes.get(changes.size() - 1).getOffset();
+        transactionTemplate.execute(status -> {
+            changes.stream()
+                    .map(TransferChangeDTO::getPayload)
+                    .filter(Objects::nonNull)
+                    .forEach(t -> playerTeamRepository.insertIfAbsent(t.getPlayerId(), t.getNewTeamId()));
+            projectionRepository.advance(PlayerTeamProjection.ID, last);
+            return null;
+        });
+        lastOffset.set(last);
+        return changes.size() == pageSize;
+    }
+
+}
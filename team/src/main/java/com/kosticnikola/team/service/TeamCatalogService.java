@@ -0,0 +1,100 @@
+package com.kosticnikola.team.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.team.entity.Team;
+import com.kosticnikola.team.repository.TeamRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class TeamCatalogService {
+
+    private final TeamRepository teamRepository;
+    private final ObjectMapper objectMapper;
+    private volatile Snapshot snapshot;
+
+    public TeamCatalogService(TeamRepository teamRepository, ObjectMapper objectMapper) {
+        this.teamRepository = teamRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${team.catalog.refresh-interval-ms:30000}")
+    public synchronized Snapshot refresh() {
+        Snapshot current = snapshot;
+        long version = current != null ? current.getVersion() + 1 : 1;
+        Snapshot next = Snapshot.of(version, teamRepository.findAll(Sort.by("id")), objectMapper);
+        if (current == null || !current.getETag().equals(next.getETag()))
+            snapshot = next;
+        return snapshot;
+    }
+
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+
+        private final long version;
+        private final String eTag;
+        private final String gzipETag;
+        private final byte[] json;
+        private final byte[] gzipJson;
+
+        public static Snapshot of(long version, List<Team> teams, ObjectMapper objectMapper) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(teams);
+                String hash = DigestUtils.md5DigestAsHex(json);
+                return new Snapshot(version, "\"" + hash + "\"", "\"" + hash + "-gzip\"", json, gzip(json));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public static boolean acceptsGzip(String acceptEncoding) {
+            if (acceptEncoding == null)
+                return false;
+            return Arrays.stream(acceptEncoding.split(","))
+                    .map(String::trim)
+                    .anyMatch(coding -> coding.startsWith("gzip") && !coding.replace(" ", "").matches("gzip;q=0(\\.0*)?"));
+        }
+
+        private static byte[] gzip(byte[] bytes) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            }
+            return out.toByteArray();
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.kosticnikola.team.service;
 
+import com.kosticnikola.team.entity.OutboxEvent;
 import com.kosticnikola.team.entity.Team;
 import com.kosticnikola.team.repository.TeamRepository;
 import com.kosticnikola.team.dto.CreateTeamDTO;
@@ -8,49 +9,68 @@ import com.kosticnikola.team.exception.InvalidIDException;
 import com.kosticnikola.team.restclient.TransferClient;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @AllArgsConstructor
 public class TeamService {
     
     private TeamRepository teamRepository;
+    private TeamCatalogService teamCatalogService;
+    private OutboxService outboxService;
     private TransferClient transferClient;
 
-    public List<Team> getAll() {
-        return teamRepository.findAll();
-    }
-
     public List<Team> getPlayerTeams(Long playerId) {
-        return teamRepository.findAllById(transferClient.getPlayerTeams(playerId));
+        List<Team> teams = teamRepository.findAllByPlayerId(playerId);
+        if (teams.isEmpty())
+            return teamRepository.findAllById(transferClient.getPlayerTeams(playerId));
+        return teams;
     }
 
     public void checkIfTeamsExist(List<Long> ids) {
-        ids.forEach(
-                id -> teamRepository.findById(id).orElseThrow(InvalidIDException::new)
-        );
+        Set<Long> distinctIds = new HashSet<>(ids);
+        if (teamRepository.countByIdIn(distinctIds) != distinctIds.size())
+            throw new InvalidIDException();
+    }
+
+    public List<Long> getExistingIds(List<Long> ids) {
+        return teamRepository.findExistingIds(new HashSet<>(ids));
     }
     
+    @Transactional
     public Team create(CreateTeamDTO teamDTO) {
-        return teamRepository.save(new Team(teamDTO.getName()));
+        Team team = teamRepository.save(new Team(teamDTO.getName()));
+        outboxService.record(OutboxEvent.TEAM, team.getId(), OutboxEvent.CREATED, team);
+        teamCatalogService.refreshAfterCommit();
+        return team;
     }
 
+    @Transactional
     public Team update(UpdateTeamDTO teamDTO) {
-        Optional<Team> optionalTeam = teamRepository.findById(teamDTO.getId());
+        Optional<Team> optionalTeam = teamRepository.findByIdForUpdate(teamDTO.getId());
         if (optionalTeam.isPresent()) {
             optionalTeam.get().setName(teamDTO.getName());
-            return teamRepository.save(optionalTeam.get());
+            Team team = teamRepository.save(optionalTeam.get());
+            outboxService.record(OutboxEvent.TEAM, team.getId(), OutboxEvent.UPDATED, team);
+            teamCatalogService.refreshAfterCommit();
+            return team;
         }
         throw new InvalidIDException();
     }
 
+    @Transactional
     public void deleteById(Long id) {
-        Optional<Team> optionalTeam = teamRepository.findById(id);
+        Optional<Team> optionalTeam = teamRepository.findByIdForUpdate(id);
         if (!optionalTeam.isPresent())
             throw new InvalidIDException();
         teamRepository.deleteById(id);
+        outboxService.record(OutboxEvent.TEAM, id, OutboxEvent.DELETED, null);
+        teamCatalogService.refreshAfterCommit();
     }
 
 }
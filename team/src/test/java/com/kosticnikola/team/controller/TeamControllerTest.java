@@ -3,9 +3,13 @@ package com.kosticnikola.team.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kosticnikola.team.dto.CreateTeamDTO;
 import com.kosticnikola.team.dto.UpdateTeamDTO;
+import com.kosticnikola.team.entity.OutboxEvent;
 import com.kosticnikola.team.entity.Team;
 import com.kosticnikola.team.exception.APIExceptionHandler;
 import com.kosticnikola.team.exception.InvalidIDException;
+import com.kosticnikola.team.service.ChangeFeedService;
+import com.kosticnikola.team.service.PlayerTeamProjectionService;
+import com.kosticnikola.team.service.TeamCatalogService;
 import com.kosticnikola.team.service.TeamService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,13 +19,16 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +42,15 @@ class TeamControllerTest {
     @Mock
     TeamService teamService;
 
+    @Mock
+    PlayerTeamProjectionService playerTeamProjectionService;
+
+    @Mock
+    TeamCatalogService teamCatalogService;
+
+    @Mock
+    ChangeFeedService changeFeedService;
+
     @InjectMocks
     TeamController teamController;
 
@@ -65,21 +81,52 @@ class TeamControllerTest {
     }
 
     @Test
-    void getAll_ShouldReturnAListOfTeamsInResponseBodyAndAStatusCode200_IfTeamServiceReturnedAListOfTeams() throws Exception {
+    void getAll_ShouldReturnTheCatalogSnapshotWithAnETagAndAStatusCode200() throws Exception {
         setUpTeams();
-        Mockito.when(teamService.getAll()).thenReturn(teams);
+        TeamCatalogService.Snapshot snapshot = TeamCatalogService.Snapshot.of(1L, teams, new ObjectMapper());
+        Mockito.when(teamCatalogService.getSnapshot()).thenReturn(snapshot);
         MvcResult result = mockMvc.perform(
                 MockMvcRequestBuilders.get("/api/team"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.getETag()))
                 .andReturn();
 
         Assertions.assertEquals(asJsonString(teams), result.getResponse().getContentAsString());
+        Mockito.verifyNoInteractions(teamService);
+    }
+
+    @Test
+    void getAll_ShouldReturnTheGzippedSnapshot_IfTheClientAcceptsGzip() throws Exception {
+        setUpTeams();
+        TeamCatalogService.Snapshot snapshot = TeamCatalogService.Snapshot.of(1L, teams, new ObjectMapper());
+        Mockito.when(teamCatalogService.getSnapshot()).thenReturn(snapshot);
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/team").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.getGzipETag()))
+                .andReturn();
+
+        Assertions.assertArrayEquals(snapshot.getGzipJson(), result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void getAll_ShouldReturnAStatusCode304WithoutABody_IfTheETagMatches() throws Exception {
+        setUpTeams();
+        TeamCatalogService.Snapshot snapshot = TeamCatalogService.Snapshot.of(1L, teams, new ObjectMapper());
+        Mockito.when(teamCatalogService.getSnapshot()).thenReturn(snapshot);
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/team").header(HttpHeaders.IF_NONE_MATCH, snapshot.getETag()))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        Assertions.assertEquals(0, result.getResponse().getContentLength());
     }
 
     @Test
     void getAll_ShouldReturnAStatusCode500_IfARuntimeExceptionIsThrown() throws Exception {
-        Mockito.when(teamService.getAll()).thenThrow(RuntimeException.class);
+        Mockito.when(teamCatalogService.getSnapshot()).thenThrow(RuntimeException.class);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/team"))
                 .andExpect(status().isInternalServerError())
                 .andReturn();
@@ -106,6 +153,15 @@ class TeamControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void rebuildPlayerTeams_ShouldReturnAStatusCode204_IfTheProjectionWasRebuilt() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/team/player/rebuild"))
+                .andExpect(status().isNoContent())
+                .andReturn();
+
+        Mockito.verify(playerTeamProjectionService).rebuild();
+    }
+
     @Test
     void getPlayerTeams_ShouldReturnAStatusCode500_IfARuntimeExceptionIsThrown() throws Exception {
         Mockito.when(teamService.getPlayerTeams(Mockito.anyLong())).thenThrow(RuntimeException.class);
@@ -160,6 +216,37 @@ class TeamControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void getExistingIds_ShouldReturnAListOfIdsInResponseBodyAndAStatusCode200_IfTeamServiceReturnedAListOfIds() throws Exception {
+        List<Long> ids = Arrays.asList(1L, 3L);
+        Mockito.when(teamService.getExistingIds(Mockito.anyList())).thenReturn(ids);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/team/existing")
+                .content(asJsonString(Arrays.asList(1L, 2L, 3L)))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        Assertions.assertEquals(asJsonString(ids), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getExistingIds_ShouldReturnAStatusCode400_IfListIsNotProvided() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/team/existing"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
+    @Test
+    void getExistingIds_ShouldReturnAStatusCode500_IfARuntimeExceptionIsThrown() throws Exception {
+        Mockito.when(teamService.getExistingIds(Mockito.anyList())).thenThrow(RuntimeException.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/team/existing")
+                .content(asJsonString(Arrays.asList(1L, 2L, 3L)))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isInternalServerError())
+                .andReturn();
+    }
+
     @Test
     void create_ShouldReturnATeamInResponseBodyAndAStatusCode200_IfTeamServiceReturnedATeam() throws Exception {
         Mockito.when(teamService.create(Mockito.any(CreateTeamDTO.class)))
@@ -382,4 +469,27 @@ class TeamControllerTest {
                 .andReturn();
     }
 
-}
\ No newline at end of file
+    @Test
+    void getChangesAfter_ShouldReturnTheChangesAndAStatusCode200_IfChangeFeedServiceReturnedChanges() throws Exception {
+        OutboxEvent event = new OutboxEvent();
+        event.setFeedOffset(6L);
+        event.setAggregateType(OutboxEvent.TEAM);
+        event.setAggregateId(1L);
+        event.setEventType(OutboxEvent.UPDATED);
+        event.setPayload("{\"id\":1,\"name\":\"Chelsea\"}");
+        DeferredResult<List<OutboxEvent>> result = new DeferredResult<>();
+        result.setResult(Collections.singletonList(event));
+        Mockito.when(changeFeedService.getChangesAfter(5L, 100, 1000L)).thenReturn(result);
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/team/changes?after=5&waitMs=1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].offset").value(6))
+                .andExpect(jsonPath("$[0].payload.name").value("Chelsea"))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+}
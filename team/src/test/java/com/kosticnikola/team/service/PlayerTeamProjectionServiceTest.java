@@ -0,0 +1,160 @@
+package com.kosticnikola.team.service;
+
+import com.kosticnikola.team.dto.TransferChangeDTO;
+import com.kosticnikola.team.dto.TransferDTO;
+import com.kosticnikola.team.entity.PlayerTeamProjection;
+import com.kosticnikola.team.repository.PlayerTeamProjectionRepository;
+import com.kosticnikola.team.repository.PlayerTeamRepository;
+import com.kosticnikola.team.restclient.TransferClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+class PlayerTeamProjectionServiceTest {
+
+    @Mock
+    PlayerTeamRepository playerTeamRepository;
+
+    @Mock
+    PlayerTeamProjectionRepository projectionRepository;
+
+    @Mock
+    TransferClient transferClient;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry;
+
+    PlayerTeamProjectionService playerTeamProjectionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        playerTeamProjectionService = new PlayerTeamProjectionService(playerTeamRepository, projectionRepository,
+                transferClient, transactionManager, meterRegistry, 2);
+    }
+
+    void setUpCheckpoint(Long... lastOffsets) {
+        Mockito.when(projectionRepository.findById(PlayerTeamProjection.ID)).thenReturn(
+                Optional.of(new PlayerTeamProjection(PlayerTeamProjection.ID, lastOffsets[0])),
+                Arrays.stream(lastOffsets).skip(1)
+                        .map(offset -> Optional.of(new PlayerTeamProjection(PlayerTeamProjection.ID, offset)))
+                        .toArray(Optional[]::new));
+    }
+
+    static TransferChangeDTO change(long offset, long playerId, long newTeamId) {
+        return new TransferChangeDTO(offset, "CREATED", new TransferDTO(offset * 10, playerId, newTeamId));
+    }
+
+    @Test
+    void catchUp_ShouldApplyEveryPageOfChangesAndAdvanceTheCheckpoint_UntilAPartialPageIsReturned() {
+        setUpCheckpoint(0L, 0L, 2L);
+        Mockito.when(transferClient.getChanges(0L, 2)).thenReturn(Arrays.asList(
+                change(1L, 10L, 100L),
+                change(2L, 10L, 200L)));
+        Mockito.when(transferClient.getChanges(2L, 2)).thenReturn(Collections.singletonList(
+                change(3L, 11L, 100L)));
+
+        playerTeamProjectionService.catchUp();
+
+        Mockito.verify(playerTeamRepository).insertIfAbsent(10L, 100L);
+        Mockito.verify(playerTeamRepository).insertIfAbsent(10L, 200L);
+        Mockito.verify(playerTeamRepository).insertIfAbsent(11L, 100L);
+        Mockito.verify(projectionRepository).advance(PlayerTeamProjection.ID, 2L);
+        Mockito.verify(projectionRepository).advance(PlayerTeamProjection.ID, 3L);
+        Mockito.verify(transferClient, Mockito.times(2)).getChanges(Mockito.anyLong(), Mockito.anyInt());
+        Mockito.verify(transferClient, Mockito.never()).getTransfers(Mockito.anyLong(), Mockito.anyInt());
+        Assertions.assertEquals(3.0, meterRegistry.get("team.player-teams.last-offset").gauge().value());
+    }
+
+    @Test
+    void catchUp_ShouldNotWrite_IfThereAreNoNewChanges() {
+        setUpCheckpoint(5L);
+        Mockito.when(transferClient.getChanges(5L, 2)).thenReturn(Collections.emptyList());
+
+        playerTeamProjectionService.catchUp();
+
+        Mockito.verifyNoInteractions(playerTeamRepository);
+        Mockito.verify(projectionRepository, Mockito.never()).advance(Mockito.anyLong(), Mockito.anyLong());
+        Assertions.assertEquals(5.0, meterRegistry.get("team.player-teams.last-offset").gauge().value());
+    }
+
+    @Test
+    void catchUp_ShouldSkipChangesWithoutAPayload() {
+        setUpCheckpoint(0L, 0L);
+        Mockito.when(transferClient.getChanges(0L, 2)).thenReturn(Collections.singletonList(
+                new TransferChangeDTO(1L, "DELETED", null)));
+
+        playerTeamProjectionService.catchUp();
+
+        Mockito.verifyNoInteractions(playerTeamRepository);
+        Mockito.verify(projectionRepository).advance(PlayerTeamProjection.ID, 1L);
+    }
+
+    @Test
+    void catchUp_ShouldScanAllTransfersAndStartFromTheHeadReadBeforeTheScan_IfThereIsNoCheckpoint() {
+        setUpCheckpoint(null, 7L);
+        Mockito.when(transferClient.getChangesHead()).thenReturn(7L);
+        Mockito.when(transferClient.getTransfers(0L, 2)).thenReturn(Arrays.asList(
+                new TransferDTO(1L, 10L, 100L),
+                new TransferDTO(4L, 10L, 200L)));
+        Mockito.when(transferClient.getTransfers(4L, 2)).thenReturn(Collections.emptyList());
+        Mockito.when(transferClient.getChanges(7L, 2)).thenReturn(Collections.emptyList());
+
+        playerTeamProjectionService.catchUp();
+
+        InOrder inOrder = Mockito.inOrder(transferClient, playerTeamRepository, projectionRepository);
+        inOrder.verify(transferClient).getChangesHead();
+        inOrder.verify(transferClient).getTransfers(0L, 2);
+        inOrder.verify(playerTeamRepository).insertIfAbsent(10L, 100L);
+        inOrder.verify(playerTeamRepository).insertIfAbsent(10L, 200L);
+        inOrder.verify(transferClient).getTransfers(4L, 2);
+        inOrder.verify(projectionRepository).start(PlayerTeamProjection.ID, 7L);
+        inOrder.verify(transferClient).getChanges(7L, 2);
+    }
+
+    @Test
+    void catchUp_ShouldNotResetStaleness_IfTheTransferServiceIsUnavailable() throws InterruptedException {
+        setUpCheckpoint(0L);
+        Mockito.when(transferClient.getChanges(Mockito.anyLong(), Mockito.anyInt()))
+                .thenReturn(Collections.emptyList())
+                .thenThrow(RuntimeException.class);
+        playerTeamProjectionService.catchUp();
+        Thread.sleep(20);
+
+        Assertions.assertThrows(RuntimeException.class, () -> playerTeamProjectionService.catchUp());
+        Assertions.assertTrue(playerTeamProjectionService.getStalenessMillis() >= 20);
+        Assertions.assertTrue(meterRegistry.get("team.player-teams.staleness").gauge().value() >= 0.02);
+    }
+
+    @Test
+    void rebuild_ShouldResetTheCheckpointAndClearTheProjectionBeforeRescanningTransfers() {
+        setUpCheckpoint(null, 1L);
+        Mockito.when(transferClient.getChangesHead()).thenReturn(1L);
+        Mockito.when(transferClient.getTransfers(0L, 2)).thenReturn(Collections.singletonList(
+                new TransferDTO(1L, 10L, 100L)));
+        Mockito.when(transferClient.getChanges(1L, 2)).thenReturn(Collections.emptyList());
+
+        playerTeamProjectionService.rebuild();
+
+        InOrder inOrder = Mockito.inOrder(projectionRepository, transferClient, playerTeamRepository);
+        inOrder.verify(projectionRepository).reset(PlayerTeamProjection.ID);
+        inOrder.verify(playerTeamRepository).deleteAllInBatch();
+        inOrder.verify(transferClient).getTransfers(0L, 2);
+        inOrder.verify(playerTeamRepository).insertIfAbsent(10L, 100L);
+        inOrder.verify(projectionRepository).start(PlayerTeamProjection.ID, 1L);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.kosticnikola.team.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.team.entity.Team;
+import com.kosticnikola.team.repository.TeamRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+class TeamCatalogServiceTest {
+
+    @Mock
+    TeamRepository teamRepository;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    TeamCatalogService teamCatalogService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        teamCatalogService = new TeamCatalogService(teamRepository, objectMapper);
+    }
+
+    @Test
+    void getSnapshot_ShouldBuildTheSnapshotOnce_AndServeItFromMemoryAfterwards() throws IOException {
+        Mockito.when(teamRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(new Team(1L, "Liverpool"), new Team(2L, "Chelsea")));
+
+        TeamCatalogService.Snapshot snapshot = teamCatalogService.getSnapshot();
+
+        Assertions.assertSame(snapshot, teamCatalogService.getSnapshot());
+        Mockito.verify(teamRepository, Mockito.times(1)).findAll(Mockito.any(Sort.class));
+        Assertions.assertEquals("[{\"id\":1,\"name\":\"Liverpool\"},{\"id\":2,\"name\":\"Chelsea\"}]",
+                new String(snapshot.getJson()));
+        Assertions.assertArrayEquals(snapshot.getJson(),
+                StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzipJson()))));
+    }
+
+    @Test
+    void refresh_ShouldKeepTheCurrentSnapshot_IfTheTeamsDidNotChange() {
+        Mockito.when(teamRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new Team(1L, "Liverpool")));
+
+        TeamCatalogService.Snapshot snapshot = teamCatalogService.getSnapshot();
+
+        Assertions.assertSame(snapshot, teamCatalogService.refresh());
+        Assertions.assertEquals(1L, teamCatalogService.getSnapshot().getVersion());
+    }
+
+    @Test
+    void refresh_ShouldPublishANewVersionWithANewETag_IfTheTeamsChanged() {
+        Mockito.when(teamRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new Team(1L, "Liverpool")))
+                .thenReturn(Collections.singletonList(new Team(1L, "Everton")));
+
+        TeamCatalogService.Snapshot first = teamCatalogService.getSnapshot();
+        TeamCatalogService.Snapshot second = teamCatalogService.refresh();
+
+        Assertions.assertEquals(2L, second.getVersion());
+        Assertions.assertNotEquals(first.getETag(), second.getETag());
+        Assertions.assertNotEquals(second.getETag(), second.getGzipETag());
+    }
+
+    @Test
+    void acceptsGzip_ShouldHonourQualityValues() {
+        Assertions.assertTrue(TeamCatalogService.Snapshot.acceptsGzip("gzip, deflate, br"));
+        Assertions.assertTrue(TeamCatalogService.Snapshot.acceptsGzip("br;q=1.0, gzip;q=0.5"));
+        Assertions.assertFalse(TeamCatalogService.Snapshot.acceptsGzip("gzip;q=0"));
+        Assertions.assertFalse(TeamCatalogService.Snapshot.acceptsGzip("identity"));
+        Assertions.assertFalse(TeamCatalogService.Snapshot.acceptsGzip(null));
+    }
+
+}
@@ -2,6 +2,7 @@ package com.kosticnikola.team.service;
 
 import com.kosticnikola.team.dto.CreateTeamDTO;
 import com.kosticnikola.team.dto.UpdateTeamDTO;
+import com.kosticnikola.team.entity.OutboxEvent;
 import com.kosticnikola.team.entity.Team;
 import com.kosticnikola.team.exception.InvalidIDException;
 import com.kosticnikola.team.repository.TeamRepository;
@@ -14,8 +15,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,12 @@ class TeamServiceTest {
     @Mock
     TeamRepository teamRepository;
 
+    @Mock
+    TeamCatalogService teamCatalogService;
+
+    @Mock
+    OutboxService outboxService;
+
     @Mock
     TransferClient transferClient;
 
@@ -47,83 +54,118 @@ class TeamServiceTest {
     }
 
     @Test
-    void getAll_ShouldReturnAListOfTeams() {
+    void getPlayerTeams_ShouldReturnAListOfTeams_FromTheLocalProjection() {
         setUpTeams();
-        Mockito.when(teamRepository.findAll()).thenReturn(teams);
-        Assertions.assertEquals(teams, teamService.getAll());
+        Mockito.when(teamRepository.findAllByPlayerId(Mockito.anyLong())).thenReturn(teams);
+
+        Assertions.assertEquals(teams, teamService.getPlayerTeams(1L));
+        Mockito.verifyNoInteractions(transferClient);
     }
 
     @Test
-    void getPlayerTeams_ShouldReturnAListOfTeams_IfATransferClientReturnedAListOfIds() {
+    void getPlayerTeams_ShouldAskTheTransferService_IfTheLocalProjectionHasNoTeamsForThePlayer() {
         setUpTeams();
-        Mockito.when(transferClient.getPlayerTeams(Mockito.anyLong())).thenReturn(new ArrayList<>());
-        Mockito.when(teamRepository.findAllById(Mockito.any())).thenReturn(teams);
+        Mockito.when(teamRepository.findAllByPlayerId(Mockito.anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(transferClient.getPlayerTeams(1L)).thenReturn(Arrays.asList(1L, 2L));
+        Mockito.when(teamRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(teams.subList(0, 2));
 
-        Assertions.assertEquals(teams, teamService.getPlayerTeams(1L));
+        Assertions.assertEquals(teams.subList(0, 2), teamService.getPlayerTeams(1L));
+    }
+
+    @Test
+    void getPlayerTeams_ShouldThrowAnInvalidIDException_IfThePlayerDoesNotExist() {
+        Mockito.when(teamRepository.findAllByPlayerId(Mockito.anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(transferClient.getPlayerTeams(1L)).thenThrow(InvalidIDException.class);
+
+        Assertions.assertThrows(InvalidIDException.class, () -> teamService.getPlayerTeams(1L));
     }
 
     @Test
-    void checkIfTeamsExist_ShouldCallTeamRepositoryFindByIdSizeOfTheProvidedListTimes() {
+    void checkIfTeamsExist_ShouldCallTeamRepositoryCountByIdInOnce() {
         List<Long> ids = Arrays.asList(1L, 2L, 3L, 4L);
-        Team t = new Team(1L, "Chelsea");
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
-                .thenReturn(Optional.of(t));
+        Mockito.when(teamRepository.countByIdIn(Mockito.anyCollection()))
+                .thenReturn((long) ids.size());
         teamService.checkIfTeamsExist(ids);
 
-        Mockito.verify(teamRepository, Mockito.times(ids.size())).findById(Mockito.anyLong());
+        Mockito.verify(teamRepository).countByIdIn(Mockito.anyCollection());
+        Mockito.verify(teamRepository, Mockito.never()).findById(Mockito.anyLong());
     }
 
     @Test
-    void checkIfTeamsExist_ShouldThrowAnInvalidIDException_IfTeamRepositoryReturnedAnEmptyOptional() {
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
-                .thenReturn(Optional.empty());
+    void checkIfTeamsExist_ShouldNotThrowAnException_IfProvidedListContainsDuplicateIdsThatExist() {
+        Mockito.when(teamRepository.countByIdIn(Mockito.anyCollection()))
+                .thenReturn(1L);
+        Assertions.assertDoesNotThrow(
+                () -> teamService.checkIfTeamsExist(Arrays.asList(1L, 1L))
+        );
+    }
+
+    @Test
+    void checkIfTeamsExist_ShouldThrowAnInvalidIDException_IfTeamRepositoryCountedFewerTeamsThanProvidedIds() {
+        Mockito.when(teamRepository.countByIdIn(Mockito.anyCollection()))
+                .thenReturn(1L);
         Assertions.assertThrows(
                 InvalidIDException.class,
                 () -> teamService.checkIfTeamsExist(Arrays.asList(1L, 2L))
         );
     }
 
+    @Test
+    void getExistingIds_ShouldReturnTheIdsTeamRepositoryFound() {
+        List<Long> existing = Arrays.asList(1L, 3L);
+        Mockito.when(teamRepository.findExistingIds(Mockito.anyCollection()))
+                .thenReturn(existing);
+        Assertions.assertEquals(existing, teamService.getExistingIds(Arrays.asList(1L, 2L, 3L, 3L)));
+    }
+
     @Test
     void create_ShouldReturnATeam_IfTeamRepositoryReturnedATeam() {
         Team t = new Team(1L, "Chelsea");
         Mockito.when(teamRepository.save(Mockito.any(Team.class)))
                 .thenReturn(t);
         Assertions.assertEquals(t, teamService.create(new CreateTeamDTO("Chelsea")));
+        Mockito.verify(outboxService).record(OutboxEvent.TEAM, 1L, OutboxEvent.CREATED, t);
+        Mockito.verify(teamCatalogService).refreshAfterCommit();
     }
 
     @Test
     void update_ShouldReturnATeam_IfTeamRepositoryReturnedATeam() {
         Team t = new Team(1L, "Chelsea");
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
+        Mockito.when(teamRepository.findByIdForUpdate(Mockito.anyLong()))
                 .thenReturn(Optional.of(t));
         Mockito.when(teamRepository.save(Mockito.any(Team.class)))
                 .thenReturn(t);
         Assertions.assertEquals(t, teamService.update(new UpdateTeamDTO(1L, "Chelsea")));
+        Mockito.verify(outboxService).record(OutboxEvent.TEAM, 1L, OutboxEvent.UPDATED, t);
+        Mockito.verify(teamCatalogService).refreshAfterCommit();
     }
 
     @Test
     void update_ShouldThrowAnInvalidIDException_IfTeamRepositoryReturnedAnEmptyOptional() {
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
+        Mockito.when(teamRepository.findByIdForUpdate(Mockito.anyLong()))
                 .thenReturn(Optional.empty());
         Assertions.assertThrows(
                 InvalidIDException.class,
                 () -> teamService.update(new UpdateTeamDTO(1L, "Chelsea"))
         );
+        Mockito.verifyNoInteractions(teamCatalogService);
     }
 
     @Test
     void deleteById_ShouldCallTeamRepositoryDeleteById_IfTeamRepositoryReturnedATeam() {
         Team t = new Team(1L, "Chelsea");
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
+        Mockito.when(teamRepository.findByIdForUpdate(Mockito.anyLong()))
                 .thenReturn(Optional.of(t));
         teamService.deleteById(Mockito.anyLong());
 
         Mockito.verify(teamRepository).deleteById(Mockito.anyLong());
+        Mockito.verify(outboxService).record(OutboxEvent.TEAM, 0L, OutboxEvent.DELETED, null);
+        Mockito.verify(teamCatalogService).refreshAfterCommit();
     }
 
     @Test
     void deleteById_ShouldThrowAnInvalidIDException_IfTeamRepositoryReturnedAnEmptyOptional() {
-        Mockito.when(teamRepository.findById(Mockito.anyLong()))
+        Mockito.when(teamRepository.findByIdForUpdate(Mockito.anyLong()))
                 .thenReturn(Optional.empty());
         Assertions.assertThrows(
                 InvalidIDException.class,
@@ -3,6 +3,17 @@ package com.kosticnikola.transfer.configuration;
 import com.kosticnikola.transfer.exception.InvalidIDException;
 import feign.Response;
 import feign.codec.ErrorDecoder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,6 +24,45 @@ public class FeignConfig {
         return new CustomErrorDecoder();
     }
 
+    @Bean
+    public PoolingHttpClientConnectionManager feignConnectionManager(FeignHttpClientProperties properties) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setConnectionTimeToLive(TimeValue.of(properties.getTimeToLive(), properties.getTimeToLiveUnit()))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient feignHttpClient(PoolingHttpClientConnectionManager feignConnectionManager,
+                                               FeignHttpClientProperties properties,
+                                               @Value("${feign.httpclient.idle-timeout:30}") long idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(feignConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeout))
+                .disableCookieManagement()
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectionTimeout()))
+                        .setRedirectsEnabled(properties.isFollowRedirects())
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public MeterBinder feignConnectionPoolMetrics(PoolingHttpClientConnectionManager feignConnectionManager) {
+        return registry -> {
+            Gauge.builder("feign.connection.pool.leased", feignConnectionManager, m -> m.getTotalStats().getLeased())
+                    .register(registry);
+            Gauge.builder("feign.connection.pool.available", feignConnectionManager, m -> m.getTotalStats().getAvailable())
+                    .register(registry);
+            Gauge.builder("feign.connection.pool.pending", feignConnectionManager, m -> m.getTotalStats().getPending())
+                    .register(registry);
+            Gauge.builder("feign.connection.pool.max", feignConnectionManager, m -> m.getTotalStats().getMax())
+                    .register(registry);
+        };
+    }
+
     private class CustomErrorDecoder implements ErrorDecoder {
         @Override
         public Exception decode(String methodKey, Response response) {
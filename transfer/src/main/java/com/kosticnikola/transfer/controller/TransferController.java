@@ -1,15 +1,26 @@
 package com.kosticnikola.transfer.controller;
 
 import com.kosticnikola.transfer.dto.CreateTransferDTO;
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.service.ChangeFeedService;
 import com.kosticnikola.transfer.service.TransferService;
+import com.kosticnikola.transfer.service.TransferStreamService;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 @RestController
 @RequestMapping("api/transfer")
@@ -18,6 +29,53 @@ import javax.validation.Valid;
 public class TransferController {
 
     private TransferService transferService;
+    private ChangeFeedService changeFeedService;
+    private TransferStreamService transferStreamService;
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid cursor or page size. (size must be between 1 and 1000)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("")
+    public ResponseEntity<?> getAllAfter(@RequestParam(value = "after", defaultValue = "0") Long after,
+                                         @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) Integer size) {
+        return ResponseEntity.ok().body(this.transferService.getAllAfter(after, size));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 400, message = "Invalid offset, page size or wait. (size must be between 1 and 1000, waitMs at most 30000)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes")
+    public DeferredResult<List<OutboxEvent>> getChangesAfter(@RequestParam(value = "after", defaultValue = "0") Long after,
+                                                             @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) Integer size,
+                                                             @RequestParam(value = "waitMs", defaultValue = "0") @Min(0) @Max(30000) Long waitMs) {
+        return this.changeFeedService.getChangesAfter(after, size, waitMs);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping("changes/head")
+    public ResponseEntity<?> getChangesHead() {
+        return ResponseEntity.ok().body(this.changeFeedService.getHead());
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful. (streams each new transfer, optionally filtered by player or team id)"),
+            @ApiResponse(code = 400, message = "Invalid player id, team id or Last-Event-ID."),
+            @ApiResponse(code = 503, message = "Too many stream subscribers."),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @GetMapping(value = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(value = "playerId", required = false) Long playerId,
+                             @RequestParam(value = "teamId", required = false) Long teamId,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return this.transferStreamService.subscribe(lastEventId, playerId, teamId);
+    }
 
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
@@ -31,12 +89,25 @@ public class TransferController {
 
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful."),
-            @ApiResponse(code = 400, message = "Invalid id(s) or commission (must be between 1 and 10)."),
+            @ApiResponse(code = 400, message = "Invalid id(s), commission (must be between 1 and 10) or idempotency key (at most 255 characters)."),
+            @ApiResponse(code = 409, message = "Player was transferred concurrently."),
+            @ApiResponse(code = 422, message = "Idempotency key was already used for a different transfer."),
             @ApiResponse(code = 500, message = "Internal server error.")
     })
     @PostMapping("")
-    public ResponseEntity<?> create(@Valid @RequestBody CreateTransferDTO createTransferDTO) {
-        return ResponseEntity.ok().body(this.transferService.create(createTransferDTO));
+    public ResponseEntity<?> create(@Valid @RequestBody CreateTransferDTO createTransferDTO,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) @Size(max = 255) String idempotencyKey) {
+        return ResponseEntity.ok().body(this.transferService.create(createTransferDTO, idempotencyKey));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful. (each item reports its transfer or an error)"),
+            @ApiResponse(code = 400, message = "Invalid list of transfers. (must contain at most 1000 valid items)"),
+            @ApiResponse(code = 500, message = "Internal server error.")
+    })
+    @PostMapping("bulk")
+    public ResponseEntity<?> createAll(@RequestBody @NotEmpty @Size(max = 1000) List<@Valid CreateTransferDTO> createTransferDTOs) {
+        return ResponseEntity.ok().body(this.transferService.createAll(createTransferDTOs));
     }
 
 }
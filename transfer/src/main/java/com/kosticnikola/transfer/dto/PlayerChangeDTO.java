@@ -0,0 +1,13 @@
+package com.kosticnikola.transfer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayerChangeDTO {
+    private Long offset, aggregateId;
+    private String eventType;
+}
@@ -0,0 +1,19 @@
+package com.kosticnikola.transfer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kosticnikola.transfer.entity.Transfer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResultDTO {
+
+    private Integer index;
+    private Transfer transfer;
+    private String error;
+
+}
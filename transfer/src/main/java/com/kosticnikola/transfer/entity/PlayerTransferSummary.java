@@ -0,0 +1,62 @@
+package com.kosticnikola.transfer.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+
+@NoArgsConstructor
+@Entity
+@Table(name = "player_transfer_summary")
+public class PlayerTransferSummary implements Persistable<Long> {
+
+    @Id
+    @Column(name = "player_id")
+    @Getter
+    @Setter
+    private Long playerId;
+
+    @Column(name = "first_transfer_at")
+    @Getter
+    @Setter
+    private Timestamp firstTransferAt;
+
+    @Column(name = "current_team_id")
+    @Getter
+    @Setter
+    private Long currentTeamId;
+
+    @Column(name = "transfer_count")
+    @Getter
+    @Setter
+    private Long transferCount;
+
+    @Transient
+    private boolean isNew = true;
+
+    public PlayerTransferSummary(Long playerId, Timestamp firstTransferAt, Long currentTeamId, Long transferCount) {
+        this.playerId = playerId;
+        this.firstTransferAt = firstTransferAt;
+        this.currentTeamId = currentTeamId;
+        this.transferCount = transferCount;
+    }
+
+    @Override
+    public Long getId() {
+        return playerId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
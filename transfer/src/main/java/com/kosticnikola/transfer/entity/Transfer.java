@@ -1,5 +1,6 @@
 package com.kosticnikola.transfer.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,7 +14,8 @@ import java.sql.Timestamp;
 public class Transfer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfers_seq")
+    @SequenceGenerator(name = "transfers_seq", sequenceName = "transfers_seq", allocationSize = 50)
     @Column(name = "id")
     @Getter
     @Setter
@@ -44,6 +46,18 @@ public class Transfer {
     @Setter
     private Double contractFee;
 
+    @JsonIgnore
+    @Column(name = "idempotency_key")
+    @Getter
+    @Setter
+    private String idempotencyKey;
+
+    @JsonIgnore
+    @Column(name = "idempotency_request_hash")
+    @Getter
+    @Setter
+    private String idempotencyRequestHash;
+
     public Transfer(Timestamp createdAt, Long playerId, Long oldTeamId, Long newTeamId, Double contractFee) {
         this.createdAt = createdAt;
         this.playerId = playerId;
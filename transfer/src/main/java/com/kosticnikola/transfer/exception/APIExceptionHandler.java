@@ -8,7 +8,9 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,11 +26,31 @@ public class APIExceptionHandler {
         return new ResponseEntity<>(new APIException(errors), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({ConstraintViolationException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<?> handleInvalidRequestParameterException() {
+        return new ResponseEntity<>(new APIException("Invalid request parameter(s)."), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler({HttpClientErrorException.class, InvalidIDException.class})
     public ResponseEntity<?> handleInvalidIDException() {
         return new ResponseEntity<>(new APIException("Invalid team/player id(s)."), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ConcurrentTransferException.class)
+    public ResponseEntity<?> handleConcurrentTransferException() {
+        return new ResponseEntity<>(new APIException("Player was transferred concurrently, please retry."), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<?> handleIdempotencyKeyMismatchException() {
+        return new ResponseEntity<>(new APIException("Idempotency key was already used for a different transfer."), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(TooManySubscribersException.class)
+    public ResponseEntity<?> handleTooManySubscribersException() {
+        return new ResponseEntity<>(new APIException("Too many transfer stream subscribers, please retry later."), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleInternalServerErrorExceptions() {
         return new ResponseEntity<>(new APIException("Internal server error."), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,4 @@
+package com.kosticnikola.transfer.exception;
+
+public class TooManySubscribersException extends RuntimeException{
+}
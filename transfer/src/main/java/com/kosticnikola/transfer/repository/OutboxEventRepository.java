@@ -0,0 +1,38 @@
+package com.kosticnikola.transfer.repository;
+
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Long feedOffset, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(e.feedOffset), 0) FROM OutboxEvent e")
+    Long findHead();
+
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET feed_offset = p.head + p.rn " +
+            "FROM (SELECT id, row_number() OVER (ORDER BY id) AS rn, " +
+            "(SELECT COALESCE(MAX(feed_offset), 0) FROM outbox_events) AS head " +
+            "FROM outbox_events WHERE feed_offset IS NULL ORDER BY id LIMIT :limit) p " +
+            "WHERE outbox_events.id = p.id", nativeQuery = true)
+    int publishPending(@Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.feedOffset IS NOT NULL AND e.createdAt < :before " +
+            "AND e.feedOffset < (SELECT MAX(o.feedOffset) FROM OutboxEvent o)")
+    int deletePublishedBefore(@Param("before") Timestamp before);
+
+}
@@ -0,0 +1,20 @@
+package com.kosticnikola.transfer.repository;
+
+import com.kosticnikola.transfer.entity.PlayerTransferSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlayerTransferSummaryRepository extends JpaRepository<PlayerTransferSummary, Long> {
+
+    @Modifying
+    @Query("UPDATE PlayerTransferSummary s SET s.currentTeamId = :currentTeamId, s.transferCount = s.transferCount + 1 " +
+            "WHERE s.playerId = :playerId AND s.currentTeamId = :expectedTeamId")
+    int recordTransfer(@Param("playerId") Long playerId,
+                       @Param("expectedTeamId") Long expectedTeamId,
+                       @Param("currentTeamId") Long currentTeamId);
+
+}
@@ -1,9 +1,13 @@
 package com.kosticnikola.transfer.repository;
 
 import com.kosticnikola.transfer.entity.Transfer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +16,17 @@ public interface TransferRepository extends JpaRepository<Transfer, Long> {
 
     List<Transfer> findAllByPlayerId(Long playerId);
 
+    @Query("SELECT DISTINCT t.newTeamId FROM Transfer t WHERE t.playerId = :playerId")
+    List<Long> findDistinctNewTeamIdsByPlayerId(@Param("playerId") Long playerId);
+
+    List<Transfer> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     Optional<Transfer> findFirstByPlayerIdOrderByCreatedAtAsc(Long playerId);
 
     Optional<Transfer> findFirstByPlayerIdOrderByCreatedAtDesc(Long playerId);
 
+    Optional<Transfer> findByIdempotencyKey(String idempotencyKey);
+
+    List<Transfer> findAllByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
 }
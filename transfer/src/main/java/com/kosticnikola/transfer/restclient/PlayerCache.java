@@ -0,0 +1,109 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.dto.PlayerChangeDTO;
+import com.kosticnikola.transfer.exception.InvalidIDException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class PlayerCache {
+
+    private final PlayerClient playerClient;
+    private final boolean enabled;
+    private final int eventPageSize;
+    private final LoadingCache<Long, PlayerDTO> cache;
+    private Long lastOffset;
+
+    public PlayerCache(PlayerClient playerClient,
+                       Executor remoteCallExecutor,
+                       MeterRegistry meterRegistry,
+                       @Value("${transfer.player-cache.enabled:true}") boolean enabled,
+                       @Value("${transfer.player-cache.max-size:100000}") long maxSize,
+                       @Value("${transfer.player-cache.ttl-minutes:60}") long ttlMinutes,
+                       @Value("${transfer.player-cache.stale-while-revalidate-seconds:0}") long staleWhileRevalidateSeconds,
+                       @Value("${transfer.player-cache.event-page-size:500}") int eventPageSize) {
+        this.playerClient = playerClient;
+        this.enabled = enabled;
+        this.eventPageSize = eventPageSize;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .executor(remoteCallExecutor)
+                .recordStats();
+        if (staleWhileRevalidateSeconds > 0)
+            builder.refreshAfterWrite(staleWhileRevalidateSeconds, TimeUnit.SECONDS);
+        this.cache = builder.build(new PlayerLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "transfer.player-cache");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PlayerDTO get(Long playerId) {
+        return cache.get(playerId);
+    }
+
+    public List<PlayerDTO> getAll(Collection<Long> playerIds) {
+        return new ArrayList<>(cache.getAll(playerIds).values());
+    }
+
+    public void invalidate(Long playerId) {
+        cache.invalidate(playerId);
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.player-cache.poll-interval-ms:1000}")
+    public synchronized void applyEvents() {
+        if (!enabled)
+            return;
+        if (lastOffset == null) {
+            lastOffset = playerClient.getChangesHead();
+            cache.invalidateAll();
+        }
+        List<PlayerChangeDTO> changes;
+        do {
+            changes = playerClient.getChanges(lastOffset, eventPageSize);
+            changes.forEach(change -> cache.invalidate(change.getAggregateId()));
+            if (!changes.isEmpty())
+                lastOffset = changes.get(changes.size() - 1).getOffset();
+        } while (changes.size() == eventPageSize);
+    }
+
+    private class PlayerLoader implements CacheLoader<Long, PlayerDTO> {
+        @Override
+        public PlayerDTO load(Long playerId) {
+            return playerClient.getPlayerTeams(playerId);
+        }
+
+        @Override
+        public Map<Long, PlayerDTO> loadAll(Iterable<? extends Long> playerIds) {
+            List<Long> ids = new ArrayList<>();
+            playerIds.forEach(ids::add);
+            return playerClient.getPlayers(ids).stream()
+                    .collect(Collectors.toMap(PlayerDTO::getId, Function.identity(), (a, b) -> a));
+        }
+
+        @Override
+        public PlayerDTO reload(Long playerId, PlayerDTO oldValue) {
+            try {
+                return load(playerId);
+            } catch (InvalidIDException e) {
+                return null;
+            }
+        }
+    }
+
+}
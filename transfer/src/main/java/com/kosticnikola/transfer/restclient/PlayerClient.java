@@ -1,9 +1,15 @@
 package com.kosticnikola.transfer.restclient;
 
 import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.dto.PlayerChangeDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 @FeignClient(name = "player")
 public interface PlayerClient {
@@ -11,4 +17,13 @@ public interface PlayerClient {
     @GetMapping("api/player/{playerId}")
     PlayerDTO getPlayerTeams(@PathVariable Long playerId);
 
+    @PostMapping("api/player/batch")
+    List<PlayerDTO> getPlayers(@RequestBody List<Long> ids);
+
+    @GetMapping("api/player/changes")
+    List<PlayerChangeDTO> getChanges(@RequestParam("after") Long after, @RequestParam("size") int size);
+
+    @GetMapping("api/player/changes/head")
+    Long getChangesHead();
+
 }
@@ -0,0 +1,69 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.kosticnikola.transfer.dto.PlayerDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class SingleFlightPlayerClient {
+
+    private final PlayerClient playerClient;
+    private final PlayerCache playerCache;
+    private final boolean checkPlayerExists;
+    private final ConcurrentMap<Long, CompletableFuture<PlayerDTO>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightPlayerClient(PlayerClient playerClient,
+                                    PlayerCache playerCache,
+                                    @Value("${transfer.team-history.check-player-exists:true}") boolean checkPlayerExists) {
+        this.playerClient = playerClient;
+        this.playerCache = playerCache;
+        this.checkPlayerExists = checkPlayerExists;
+    }
+
+    public void checkPlayerExists(Long playerId) {
+        if (checkPlayerExists)
+            getPlayerTeams(playerId);
+    }
+
+    public PlayerDTO getPlayerTeams(Long playerId) {
+        if (playerCache.isEnabled())
+            return playerCache.get(playerId);
+
+        CompletableFuture<PlayerDTO> future = new CompletableFuture<>();
+        CompletableFuture<PlayerDTO> existing = inFlight.putIfAbsent(playerId, future);
+        if (existing != null)
+            return join(existing);
+
+        try {
+            future.complete(playerClient.getPlayerTeams(playerId));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(playerId, future);
+        }
+        return join(future);
+    }
+
+    public List<PlayerDTO> getPlayers(List<Long> playerIds) {
+        if (playerCache.isEnabled())
+            return playerCache.getAll(playerIds);
+        return playerClient.getPlayers(playerIds);
+    }
+
+    private static PlayerDTO join(CompletableFuture<PlayerDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+}
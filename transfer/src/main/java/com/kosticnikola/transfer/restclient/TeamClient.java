@@ -12,4 +12,7 @@ public interface TeamClient {
     @PostMapping("api/team/exist")
     Object checkIfTeamsExist(@RequestBody List<Long> list);
 
+    @PostMapping("api/team/existing")
+    List<Long> getExistingTeamIds(@RequestBody List<Long> list);
+
 }
@@ -0,0 +1,146 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.kosticnikola.transfer.exception.InvalidIDException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+
+@Component
+public class TeamExistenceBatcher {
+
+    private final TeamClient teamClient;
+    private final ExecutorService dispatcher;
+    private final long maxWaitMillis;
+    private final int maxIds;
+    private final DistributionSummary batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<PendingCheck> pending = new ArrayList<>();
+    private int pendingIds;
+
+    @Autowired
+    public TeamExistenceBatcher(TeamClient teamClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${transfer.team-exist-batch.max-wait-ms:2}") long maxWaitMillis,
+                                @Value("${transfer.team-exist-batch.max-ids:64}") int maxIds,
+                                @Value("${transfer.team-exist-batch.dispatch-threads:4}") int dispatchThreads,
+                                @Value("${transfer.team-exist-batch.dispatch-queue-capacity:64}") int dispatchQueueCapacity) {
+        this(teamClient, dispatcherPool(dispatchThreads, dispatchQueueCapacity), meterRegistry, maxWaitMillis, maxIds);
+    }
+
+    TeamExistenceBatcher(TeamClient teamClient,
+                         ExecutorService dispatcher,
+                         MeterRegistry meterRegistry,
+                         long maxWaitMillis,
+                         int maxIds) {
+        this.teamClient = teamClient;
+        this.dispatcher = dispatcher;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxIds = maxIds;
+        this.batchSize = meterRegistry.summary("transfer.team-exist.batch.size");
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("team-exist-batcher-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    public CompletableFuture<Void> submit(List<Long> ids) {
+        PendingCheck check = new PendingCheck(ids);
+        List<PendingCheck> batch = null;
+        synchronized (lock) {
+            pending.add(check);
+            pendingIds += ids.size();
+            if (pendingIds >= maxIds)
+                batch = drain();
+            else if (pending.size() == 1)
+                scheduler.schedule(this::flush, maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        if (batch != null)
+            dispatch(batch);
+        return check.future;
+    }
+
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return new HashSet<>();
+        return new HashSet<>(teamClient.getExistingTeamIds(new ArrayList<>(ids)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcher.shutdown();
+        List<PendingCheck> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty())
+            send(batch);
+    }
+
+    private void flush() {
+        List<PendingCheck> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty())
+            dispatch(batch);
+    }
+
+    private List<PendingCheck> drain() {
+        List<PendingCheck> batch = pending;
+        pending = new ArrayList<>();
+        pendingIds = 0;
+        return batch;
+    }
+
+    private void dispatch(List<PendingCheck> batch) {
+        try {
+            dispatcher.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(check -> check.future.completeExceptionally(e));
+        }
+    }
+
+    private void send(List<PendingCheck> batch) {
+        Set<Long> ids = new HashSet<>();
+        batch.forEach(check -> ids.addAll(check.ids));
+        ids.remove(null);
+        batchSize.record(batch.size());
+        try {
+            Set<Long> existingIds = new HashSet<>(teamClient.getExistingTeamIds(new ArrayList<>(ids)));
+            for (PendingCheck check : batch) {
+                if (existingIds.containsAll(check.ids))
+                    check.future.complete(null);
+                else
+                    check.future.completeExceptionally(new InvalidIDException());
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(check -> check.future.completeExceptionally(e));
+        }
+    }
+
+    private static ExecutorService dispatcherPool(int dispatchThreads, int dispatchQueueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("team-exist-dispatch-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dispatchQueueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static class PendingCheck {
+        private final List<Long> ids;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingCheck(List<Long> ids) {
+            this.ids = ids;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.kosticnikola.transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+@Component
+public class PlayerLockManager {
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean crossInstance;
+    private final ReentrantLock[] stripes;
+    private final Timer lockWait;
+
+    public PlayerLockManager(PlatformTransactionManager transactionManager,
+                             JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${transfer.player-locks.stripes:1024}") int stripes,
+                             @Value("${transfer.player-locks.cross-instance:true}") boolean crossInstance) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.crossInstance = crossInstance;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++)
+            this.stripes[i] = new ReentrantLock();
+        this.lockWait = meterRegistry.timer("transfer.player-lock.wait");
+    }
+
+    public <T> T executeLocked(Collection<Long> playerIds, Supplier<T> action) {
+        return executeStriped(playerIds, () -> transactionTemplate.execute(status -> {
+            if (crossInstance)
+                playerIds.stream()
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .sorted()
+                        .forEach(playerId -> jdbcTemplate.query(
+                                "SELECT pg_advisory_xact_lock(?)", rs -> { }, playerId));
+            return action.get();
+        }));
+    }
+
+    public <T> T executeStriped(Collection<Long> playerIds, Supplier<T> action) {
+        int[] locked = playerIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripe)
+                .distinct()
+                .sorted()
+                .toArray();
+        long start = System.nanoTime();
+        for (int stripe : locked)
+            stripes[stripe].lock();
+        lockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        try {
+            return action.get();
+        } finally {
+            for (int i = locked.length - 1; i >= 0; i--)
+                stripes[locked[i]].unlock();
+        }
+    }
+
+    int stripe(long playerId) {
+        long h = playerId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (stripes.length - 1);
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.entity.Transfer;
+import com.kosticnikola.transfer.exception.ConcurrentTransferException;
+import com.kosticnikola.transfer.repository.TransferRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class TransferGroupCommitter {
+
+    private static final String RECORD_TRANSFERS = "UPDATE player_transfer_summary s " +
+            "SET current_team_id = t.new_team_id, transfer_count = s.transfer_count + 1 " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::bigint[]) AS t(player_id, old_team_id, new_team_id) " +
+            "WHERE s.player_id = t.player_id AND s.current_team_id = t.old_team_id " +
+            "RETURNING s.player_id";
+    private static final String INSERT_SUMMARIES = "INSERT INTO player_transfer_summary " +
+            "(player_id, first_transfer_at, current_team_id, transfer_count) " +
+            "SELECT t.player_id, t.created_at, t.new_team_id, 1 " +
+            "FROM unnest(?::bigint[], ?::timestamp[], ?::bigint[]) AS t(player_id, created_at, new_team_id) " +
+            "ON CONFLICT (player_id) DO NOTHING " +
+            "RETURNING player_id";
+    private static final String LOCK_IDEMPOTENCY_KEYS = "SELECT pg_advisory_xact_lock(?, hashtext(k)) " +
+            "FROM (SELECT DISTINCT unnest(?::text[]) AS k ORDER BY 1) AS idempotency_keys";
+    private static final int IDEMPOTENCY_KEY_LOCK_SPACE = 1;
+
+    private final TransferRepository transferRepository;
+    private final TransferHistoryIndex transferHistoryIndex;
+    private final OutboxService outboxService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long maxWaitMillis;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSize;
+    private final ScheduledExecutorService writer;
+
+    private final Object lock = new Object();
+    private List<PendingTransfer> pending = new ArrayList<>();
+
+    public TransferGroupCommitter(TransferRepository transferRepository,
+                                  TransferHistoryIndex transferHistoryIndex,
+                                  OutboxService outboxService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${transfer.group-commit.enabled:false}") boolean enabled,
+                                  @Value("${transfer.group-commit.max-wait-ms:1}") long maxWaitMillis,
+                                  @Value("${transfer.group-commit.max-batch-size:100}") int maxBatchSize) {
+        this.transferRepository = transferRepository;
+        this.transferHistoryIndex = transferHistoryIndex;
+        this.outboxService = outboxService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = meterRegistry.summary("transfer.group-commit.batch.size");
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("transfer-group-commit-");
+        threadFactory.setDaemon(true);
+        this.writer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Transfer> submit(Transfer transfer, Long expectedTeamId) {
+        PendingTransfer pendingTransfer = new PendingTransfer(transfer, expectedTeamId);
+        List<PendingTransfer> batch = null;
+        synchronized (lock) {
+            pending.add(pendingTransfer);
+            if (pending.size() >= maxBatchSize)
+                batch = drain();
+            else if (pending.size() == 1)
+                writer.schedule(this::flush, maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        if (batch != null)
+            dispatch(batch);
+        return pendingTransfer.future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingTransfer> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty())
+            commit(batch);
+    }
+
+    private void flush() {
+        List<PendingTransfer> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty())
+            commit(batch);
+    }
+
+    private List<PendingTransfer> drain() {
+        List<PendingTransfer> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(List<PendingTransfer> batch) {
+        try {
+            writer.execute(() -> commit(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(pendingTransfer -> pendingTransfer.future.completeExceptionally(e));
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        batchSize.record(batch.size());
+        try {
+            Set<Long> recorded = transactionTemplate.execute(status -> write(batch));
+            for (PendingTransfer pendingTransfer : batch) {
+                PendingTransfer winner = pendingTransfer.duplicateOf != null ? pendingTransfer.duplicateOf : pendingTransfer;
+                if (winner.stored != null)
+                    pendingTransfer.future.complete(winner.stored);
+                else if (recorded.contains(winner.transfer.getPlayerId()))
+                    pendingTransfer.future.complete(winner.transfer);
+                else
+                    pendingTransfer.future.completeExceptionally(new ConcurrentTransferException());
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pendingTransfer -> pendingTransfer.future.completeExceptionally(e));
+        }
+    }
+
+    private Set<Long> write(List<PendingTransfer> batch) {
+        Map<Boolean, List<PendingTransfer>> byExistingSummary = claimIdempotencyKeys(batch).stream()
+                .collect(Collectors.partitioningBy(pendingTransfer -> pendingTransfer.expectedTeamId != null));
+        Set<Long> recorded = new HashSet<>();
+        recorded.addAll(queryPlayerIds(RECORD_TRANSFERS, byExistingSummary.get(true),
+                new String[]{"bigint", "bigint", "bigint"},
+                pendingTransfer -> pendingTransfer.transfer.getPlayerId(),
+                pendingTransfer -> pendingTransfer.expectedTeamId,
+                pendingTransfer -> pendingTransfer.transfer.getNewTeamId()));
+        recorded.addAll(queryPlayerIds(INSERT_SUMMARIES, byExistingSummary.get(false),
+                new String[]{"bigint", "timestamp", "bigint"},
+                pendingTransfer -> pendingTransfer.transfer.getPlayerId(),
+                pendingTransfer -> pendingTransfer.transfer.getCreatedAt(),
+                pendingTransfer -> pendingTransfer.transfer.getNewTeamId()));
+
+        List<Transfer> transfers = batch.stream()
+                .filter(pendingTransfer -> pendingTransfer.stored == null && pendingTransfer.duplicateOf == null)
+                .map(pendingTransfer -> pendingTransfer.transfer)
+                .filter(transfer -> recorded.contains(transfer.getPlayerId()))
+                .collect(Collectors.toList());
+        transferRepository.saveAll(transfers);
+        outboxService.record(OutboxEvent.TRANSFER, OutboxEvent.CREATED, transfers, Transfer::getId);
+        transfers.forEach(transfer -> transferHistoryIndex.recordAfterCommit(
+                transfer.getPlayerId(), transfer.getNewTeamId(), transfer.getCreatedAt()));
+        return recorded;
+    }
+
+    private List<PendingTransfer> claimIdempotencyKeys(List<PendingTransfer> batch) {
+        List<String> keys = batch.stream()
+                .map(pendingTransfer -> pendingTransfer.transfer.getIdempotencyKey())
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (keys.isEmpty())
+            return batch;
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOCK_IDEMPOTENCY_KEYS);
+            statement.setInt(1, IDEMPOTENCY_KEY_LOCK_SPACE);
+            statement.setArray(2, connection.createArrayOf("text", keys.toArray()));
+            return statement;
+        }, rs -> { });
+        Map<String, Transfer> stored = transferRepository.findAllByIdempotencyKeyIn(keys).stream()
+                .collect(Collectors.toMap(Transfer::getIdempotencyKey, Function.identity()));
+
+        List<PendingTransfer> claimed = new ArrayList<>(batch.size());
+        Map<String, PendingTransfer> claimedByKey = new HashMap<>();
+        for (PendingTransfer pendingTransfer : batch) {
+            String key = pendingTransfer.transfer.getIdempotencyKey();
+            if (key != null && stored.containsKey(key))
+                pendingTransfer.stored = stored.get(key);
+            else if (key != null && claimedByKey.containsKey(key))
+                pendingTransfer.duplicateOf = claimedByKey.get(key);
+            else {
+                if (key != null)
+                    claimedByKey.put(key, pendingTransfer);
+                claimed.add(pendingTransfer);
+            }
+        }
+        return claimed;
+    }
+
+    @SafeVarargs
+    private final List<Long> queryPlayerIds(String sql,
+                                            List<PendingTransfer> batch,
+                                            String[] types,
+                                            Function<PendingTransfer, Object>... columns) {
+        if (batch.isEmpty())
+            return Collections.emptyList();
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            for (int i = 0; i < columns.length; i++)
+                statement.setArray(i + 1, array(connection, types[i], batch, columns[i]));
+            return statement;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    private static Array array(Connection connection,
+                               String type,
+                               List<PendingTransfer> batch,
+                               Function<PendingTransfer, Object> column) throws SQLException {
+        return connection.createArrayOf(type, batch.stream().map(column).toArray());
+    }
+
+    private static class PendingTransfer {
+        private final Transfer transfer;
+        private final Long expectedTeamId;
+        private final CompletableFuture<Transfer> future = new CompletableFuture<>();
+        private Transfer stored;
+        private PendingTransfer duplicateOf;
+
+        private PendingTransfer(Transfer transfer, Long expectedTeamId) {
+            this.transfer = transfer;
+            this.expectedTeamId = expectedTeamId;
+        }
+    }
+
+}
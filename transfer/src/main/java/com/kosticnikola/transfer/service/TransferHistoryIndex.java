@@ -0,0 +1,247 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.PlayerTransferSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class TransferHistoryIndex implements SmartInitializingSingleton {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final long[] NO_TEAMS = new long[0];
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int WARM_PAGE_SIZE = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxPlayers;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    private boolean overflowed;
+
+    private long[] playerIds;
+    private long[] firstTransferAt;
+    private long[] lastTransferAt;
+    private long[] currentTeamIds;
+    private long[] transferCounts;
+    private long[][] teamIds;
+    private int size;
+    private long teamIdCount;
+
+    public TransferHistoryIndex(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${transfer.history-index.enabled:false}") boolean enabled,
+                                @Value("${transfer.history-index.max-players:1000000}") int maxPlayers,
+                                @Value("${transfer.player-locks.cross-instance:true}") boolean crossInstance) {
+        if (enabled && crossInstance)
+            throw new IllegalStateException("transfer.history-index.enabled is only supported on a single transfer "
+                    + "instance; set transfer.player-locks.cross-instance=false to confirm there is only one");
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxPlayers = maxPlayers;
+        allocate(INITIAL_CAPACITY);
+        Gauge.builder("transfer.history-index.players", this, TransferHistoryIndex::size)
+                .register(meterRegistry);
+        Gauge.builder("transfer.history-index.memory", this, TransferHistoryIndex::estimateBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled)
+            warm();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void warm() {
+        long[] lastId = {0};
+        int[] rows = {0};
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query(
+                    "SELECT id, player_id, new_team_id, created_at FROM transfers WHERE id > ? ORDER BY id LIMIT ?",
+                    rs -> {
+                        lastId[0] = rs.getLong("id");
+                        rows[0]++;
+                        record(rs.getLong("player_id"), rs.getLong("new_team_id"), rs.getTimestamp("created_at").getTime());
+                    },
+                    lastId[0], WARM_PAGE_SIZE
+            );
+        } while (rows[0] == WARM_PAGE_SIZE && !overflowed);
+        ready = !overflowed;
+    }
+
+    public Optional<PlayerTransferSummary> getSummary(long playerId) {
+        lock.readLock().lock();
+        try {
+            int slot = find(playerId);
+            if (slot < 0)
+                return Optional.empty();
+            return Optional.of(new PlayerTransferSummary(
+                    playerId,
+                    new Timestamp(firstTransferAt[slot]),
+                    currentTeamIds[slot],
+                    transferCounts[slot]
+            ));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] getTeamIds(long playerId) {
+        lock.readLock().lock();
+        try {
+            int slot = find(playerId);
+            return slot < 0 ? NO_TEAMS : teamIds[slot].clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void recordAfterCommit(long playerId, long newTeamId, Timestamp createdAt) {
+        if (!ready)
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(playerId, newTeamId, createdAt.getTime());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(playerId, newTeamId, createdAt.getTime());
+            }
+        });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            long slots = playerIds.length;
+            return 5 * (16 + 8 * slots) + (16 + 8 * slots) + 16L * size + 8 * teamIdCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void record(long playerId, long newTeamId, long createdAt) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(playerId);
+            if (slot < 0) {
+                if (overflowed)
+                    return;
+                if (size >= maxPlayers) {
+                    overflow();
+                    return;
+                }
+                if ((size + 1) * 2 > playerIds.length) {
+                    resize(playerIds.length * 2);
+                    slot = find(playerId);
+                }
+                slot = -slot - 1;
+                playerIds[slot] = playerId;
+                firstTransferAt[slot] = createdAt;
+                lastTransferAt[slot] = createdAt;
+                currentTeamIds[slot] = newTeamId;
+                teamIds[slot] = NO_TEAMS;
+                size++;
+            }
+            if (createdAt < firstTransferAt[slot])
+                firstTransferAt[slot] = createdAt;
+            if (createdAt >= lastTransferAt[slot]) {
+                lastTransferAt[slot] = createdAt;
+                currentTeamIds[slot] = newTeamId;
+            }
+            transferCounts[slot]++;
+            addTeamId(slot, newTeamId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void overflow() {
+        ready = false;
+        overflowed = true;
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+        teamIdCount = 0;
+    }
+
+    private void addTeamId(int slot, long teamId) {
+        long[] teams = teamIds[slot];
+        for (long id : teams)
+            if (id == teamId)
+                return;
+        long[] grown = Arrays.copyOf(teams, teams.length + 1);
+        grown[teams.length] = teamId;
+        teamIds[slot] = grown;
+        teamIdCount++;
+    }
+
+    private int find(long playerId) {
+        int mask = playerIds.length - 1;
+        int slot = hash(playerId) & mask;
+        while (playerIds[slot] != FREE) {
+            if (playerIds[slot] == playerId)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldPlayerIds = playerIds;
+        long[] oldFirstTransferAt = firstTransferAt;
+        long[] oldLastTransferAt = lastTransferAt;
+        long[] oldCurrentTeamIds = currentTeamIds;
+        long[] oldTransferCounts = transferCounts;
+        long[][] oldTeamIds = teamIds;
+        allocate(capacity);
+        for (int i = 0; i < oldPlayerIds.length; i++) {
+            if (oldPlayerIds[i] == FREE)
+                continue;
+            int slot = -find(oldPlayerIds[i]) - 1;
+            playerIds[slot] = oldPlayerIds[i];
+            firstTransferAt[slot] = oldFirstTransferAt[i];
+            lastTransferAt[slot] = oldLastTransferAt[i];
+            currentTeamIds[slot] = oldCurrentTeamIds[i];
+            transferCounts[slot] = oldTransferCounts[i];
+            teamIds[slot] = oldTeamIds[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        playerIds = new long[capacity];
+        Arrays.fill(playerIds, FREE);
+        firstTransferAt = new long[capacity];
+        lastTransferAt = new long[capacity];
+        currentTeamIds = new long[capacity];
+        transferCounts = new long[capacity];
+        teamIds = new long[capacity][];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.Transfer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+public class TransferIdempotencyCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Transfer>> inFlight = new ConcurrentHashMap<>();
+
+    public TransferIdempotencyCache(MeterRegistry meterRegistry,
+                                    @Value("${transfer.idempotency.cache-size:10000}") int maxSize,
+                                    @Value("${transfer.idempotency.ttl-minutes:60}") long ttlMinutes) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.hits = meterRegistry.counter("transfer.idempotency.cache", "result", "hit");
+        this.misses = meterRegistry.counter("transfer.idempotency.cache", "result", "miss");
+        meterRegistry.gauge("transfer.idempotency.cache.size", this, TransferIdempotencyCache::size);
+    }
+
+    public Transfer get(String idempotencyKey, Supplier<Transfer> loader) {
+        Transfer cached = lookup(idempotencyKey);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<Transfer> future = new CompletableFuture<>();
+        CompletableFuture<Transfer> existing = inFlight.putIfAbsent(idempotencyKey, future);
+        if (existing != null)
+            return join(existing);
+
+        try {
+            Transfer transfer = loader.get();
+            put(idempotencyKey, transfer);
+            future.complete(transfer);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(idempotencyKey, future);
+        }
+        return join(future);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Transfer lookup(String idempotencyKey) {
+        long now = System.nanoTime();
+        evictExpired(now);
+        Entry entry = entries.get(idempotencyKey);
+        return entry != null ? entry.transfer : null;
+    }
+
+    private synchronized void put(String idempotencyKey, Transfer transfer) {
+        long now = System.nanoTime();
+        entries.remove(idempotencyKey);
+        entries.put(idempotencyKey, new Entry(transfer, now + ttlNanos));
+        evictExpired(now);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue().expiresAt - now <= 0)
+            iterator.remove();
+    }
+
+    private static Transfer join(CompletableFuture<Transfer> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        private final Transfer transfer;
+        private final long expiresAt;
+
+        private Entry(Transfer transfer, long expiresAt) {
+            this.transfer = transfer;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
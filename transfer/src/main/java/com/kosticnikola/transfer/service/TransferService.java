@@ -2,81 +2,320 @@ package com.kosticnikola.transfer.service;
 
 import com.kosticnikola.transfer.dto.CreateTransferDTO;
 import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.dto.TransferResultDTO;
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.entity.PlayerTransferSummary;
 import com.kosticnikola.transfer.entity.Transfer;
+import com.kosticnikola.transfer.exception.ConcurrentTransferException;
+import com.kosticnikola.transfer.exception.IdempotencyKeyMismatchException;
 import com.kosticnikola.transfer.exception.InvalidIDException;
+import com.kosticnikola.transfer.repository.PlayerTransferSummaryRepository;
 import com.kosticnikola.transfer.repository.TransferRepository;
-import com.kosticnikola.transfer.restclient.PlayerClient;
-import com.kosticnikola.transfer.restclient.TeamClient;
+import com.kosticnikola.transfer.restclient.SingleFlightPlayerClient;
+import com.kosticnikola.transfer.restclient.TeamExistenceBatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @Service
 @AllArgsConstructor
 public class TransferService {
     
     private TransferRepository transferRepository;
-    private PlayerClient playerClient;
-    private TeamClient teamClient;
+    private PlayerTransferSummaryRepository playerTransferSummaryRepository;
+    private SingleFlightPlayerClient playerClient;
+    private TeamExistenceBatcher teamExistenceBatcher;
+    private TransferHistoryIndex transferHistoryIndex;
+    private PlayerLockManager playerLockManager;
+    private TransferGroupCommitter transferGroupCommitter;
+    private TransferIdempotencyCache transferIdempotencyCache;
+    private OutboxService outboxService;
+    private Executor remoteCallExecutor;
+    private MeterRegistry meterRegistry;
 
-    public Set<Long> getAllTeamIdsByPlayerId(Long playerId) {
-        playerClient.getPlayerTeams(playerId);
-        List<Transfer> transfers = transferRepository.findAllByPlayerId(playerId);
-        if (transfers.isEmpty()) return new HashSet<>();
+    public List<Transfer> getAllAfter(Long after, int size) {
+        return transferRepository.findAllByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size));
+    }
 
-        return transfers.stream()
-                .map(Transfer::getNewTeamId)
-                .collect(Collectors.toSet());
+    public Set<Long> getAllTeamIdsByPlayerId(Long playerId) {
+        Set<Long> teamIds = transferHistoryIndex.isReady()
+                ? LongStream.of(transferHistoryIndex.getTeamIds(playerId)).boxed().collect(Collectors.toSet())
+                : new HashSet<>(transferRepository.findDistinctNewTeamIdsByPlayerId(playerId));
+        if (teamIds.isEmpty())
+            playerClient.checkPlayerExists(playerId);
+        return teamIds;
     }
     
     public Transfer create(CreateTransferDTO transferDTO) {
-        PlayerDTO playerDTO = playerClient.getPlayerTeams(transferDTO.getPlayerId());
-        long oldTeamId;
-        Optional<Transfer> optionalTransfer = transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(playerDTO.getId());
-        if (optionalTransfer.isPresent()) {
-            if (optionalTransfer.get().getNewTeamId().equals(transferDTO.getNewTeamId()))
-                throw new InvalidIDException();
-            oldTeamId = optionalTransfer.get().getNewTeamId();
+        return create(transferDTO, null);
+    }
+
+    public Transfer create(CreateTransferDTO transferDTO, String idempotencyKey) {
+        if (idempotencyKey == null)
+            return createOnce(transferDTO, null);
+
+        Transfer transfer = transferIdempotencyCache.get(idempotencyKey, () -> createOnce(transferDTO, idempotencyKey));
+        if (!matchesRequest(transfer, transferDTO))
+            throw new IdempotencyKeyMismatchException();
+        return transfer;
+    }
+
+    static String requestHash(CreateTransferDTO transferDTO) {
+        String request = transferDTO.getPlayerId() + ":" + transferDTO.getNewTeamId() + ":" + transferDTO.getCommission();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        else
-            oldTeamId = transferDTO.getNewTeamId();
+    }
 
-        teamClient.checkIfTeamsExist(Arrays.asList(transferDTO.getNewTeamId(), oldTeamId));
+    private static boolean matchesRequest(Transfer transfer, CreateTransferDTO transferDTO) {
+        if (transfer.getIdempotencyRequestHash() != null)
+            return transfer.getIdempotencyRequestHash().equals(requestHash(transferDTO));
+        return transfer.getPlayerId().equals(transferDTO.getPlayerId())
+                && transfer.getNewTeamId().equals(transferDTO.getNewTeamId());
+    }
 
-        long months = 0;
-        optionalTransfer = transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(playerDTO.getId());
-        if (optionalTransfer.isPresent())
-            months = ChronoUnit.MONTHS.between(optionalTransfer.get().getCreatedAt().toLocalDateTime(), LocalDateTime.now());
+    public List<TransferResultDTO> createAll(List<CreateTransferDTO> transferDTOs) {
+        if (transferDTOs.isEmpty())
+            return new ArrayList<>();
+        Set<Long> playerIds = transferDTOs.stream()
+                .map(CreateTransferDTO::getPlayerId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        CompletableFuture<Map<Long, PlayerDTO>> playersFuture = CompletableFuture.supplyAsync(
+                () -> playerClient.getPlayers(new ArrayList<>(playerIds)).stream()
+                        .collect(Collectors.toMap(PlayerDTO::getId, Function.identity(), (a, b) -> a)),
+                remoteCallExecutor
+        );
 
-        int period = Period.between(playerDTO.getDateOfBirth(), LocalDate.now()).getYears();
-        if (period == 0) period = 1;
-        double transferFee = months * 100000 / period;
-        double contractFee = transferFee + transferFee * transferDTO.getCommission() / 100;
+        Set<Long> teamIds = transferDTOs.stream()
+                .map(CreateTransferDTO::getNewTeamId)
+                .collect(Collectors.toSet());
+        playerTransferSummaryRepository.findAllById(playerIds)
+                .forEach(summary -> teamIds.add(summary.getCurrentTeamId()));
+        CompletableFuture<Set<Long>> teamsFuture = CompletableFuture.supplyAsync(
+                () -> teamExistenceBatcher.getExistingIds(teamIds),
+                remoteCallExecutor
+        );
+
+        Map<Long, PlayerDTO> players = join(playersFuture);
+        Set<Long> existingTeamIds = join(teamsFuture);
+        return playerLockManager.executeLocked(
+                playerIds,
+                () -> createAllLocked(transferDTOs, playerIds, players, teamIds, existingTeamIds)
+        );
+    }
+
+    private Transfer createOnce(CreateTransferDTO transferDTO, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<Transfer> existing = transferRepository.findByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent())
+                return existing.get();
+        }
+
+        Optional<PlayerTransferSummary> optionalSummary = timed(
+                "summary",
+                () -> findSummary(transferDTO.getPlayerId())
+        );
+        Long oldTeamId = currentTeamId(optionalSummary, transferDTO);
+        List<Long> teamIds = Arrays.asList(transferDTO.getNewTeamId(), oldTeamId);
+        CompletableFuture<PlayerDTO> playerFuture = timedAsync(
+                "player",
+                () -> playerClient.getPlayerTeams(transferDTO.getPlayerId())
+        );
+        CompletableFuture<Void> teamFuture = timed(
+                "team",
+                teamExistenceBatcher.submit(teamIds)
+        );
+        PlayerDTO playerDTO = join(playerFuture);
+        join(teamFuture);
+
+        Set<Long> playerIds = Collections.singleton(transferDTO.getPlayerId());
+        Supplier<Transfer> action = () -> {
+            if (idempotencyKey != null) {
+                Optional<Transfer> existing = transferRepository.findByIdempotencyKey(idempotencyKey);
+                if (existing.isPresent())
+                    return existing.get();
+            }
+            return createLocked(transferDTO, idempotencyKey, playerDTO);
+        };
+        try {
+            if (transferGroupCommitter.isEnabled())
+                return playerLockManager.executeStriped(playerIds, action);
+            return playerLockManager.executeLocked(playerIds, action);
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyKey == null)
+                throw e;
+            return transferRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e);
+        }
+    }
+
+    private Transfer createLocked(CreateTransferDTO transferDTO, String idempotencyKey, PlayerDTO playerDTO) {
+        boolean indexed = transferHistoryIndex.isReady();
+        Optional<PlayerTransferSummary> optionalSummary = findSummary(transferDTO.getPlayerId());
+        long oldTeamId = currentTeamId(optionalSummary, transferDTO);
 
-        return transferRepository.save(new Transfer(
-                Timestamp.valueOf(LocalDateTime.now()),
+        double contractFee = contractFee(optionalSummary.orElse(null), playerDTO, transferDTO.getCommission());
+
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        Transfer transfer = new Transfer(
+                createdAt,
                 playerDTO.getId(),
                 oldTeamId,
                 transferDTO.getNewTeamId(),
                 contractFee
-        ));
+        );
+        transfer.setIdempotencyKey(idempotencyKey);
+        if (idempotencyKey != null)
+            transfer.setIdempotencyRequestHash(requestHash(transferDTO));
+        if (transferGroupCommitter.isEnabled())
+            return join(transferGroupCommitter.submit(
+                    transfer,
+                    optionalSummary.map(PlayerTransferSummary::getCurrentTeamId).orElse(null)
+            ));
+        transfer = transferRepository.save(transfer);
+        outboxService.record(OutboxEvent.TRANSFER, transfer.getId(), OutboxEvent.CREATED, transfer);
+
+        if (indexed && optionalSummary.isPresent()) {
+            if (playerTransferSummaryRepository.recordTransfer(playerDTO.getId(), oldTeamId, transferDTO.getNewTeamId()) == 0)
+                throw new ConcurrentTransferException();
+        } else {
+            PlayerTransferSummary summary = optionalSummary.orElseGet(() -> new PlayerTransferSummary(
+                    playerDTO.getId(),
+                    createdAt,
+                    transferDTO.getNewTeamId(),
+                    0L
+            ));
+            summary.setCurrentTeamId(transferDTO.getNewTeamId());
+            summary.setTransferCount(summary.getTransferCount() + 1);
+            playerTransferSummaryRepository.save(summary);
+        }
+        transferHistoryIndex.recordAfterCommit(playerDTO.getId(), transferDTO.getNewTeamId(), createdAt);
+
+        return transfer;
     }
 
-}
+    private List<TransferResultDTO> createAllLocked(List<CreateTransferDTO> transferDTOs,
+                                                    Set<Long> playerIds,
+                                                    Map<Long, PlayerDTO> players,
+                                                    Set<Long> checkedTeamIds,
+                                                    Set<Long> existingTeamIds) {
+        Map<Long, PlayerTransferSummary> summaries = playerTransferSummaryRepository.findAllById(playerIds).stream()
+                .collect(Collectors.toMap(PlayerTransferSummary::getPlayerId, Function.identity()));
+
+        List<TransferResultDTO> results = new ArrayList<>(transferDTOs.size());
+        List<Transfer> transfers = new ArrayList<>();
+        Map<Long, PlayerTransferSummary> touchedSummaries = new LinkedHashMap<>();
+        for (int i = 0; i < transferDTOs.size(); i++) {
+            CreateTransferDTO transferDTO = transferDTOs.get(i);
+            PlayerDTO playerDTO = players.get(transferDTO.getPlayerId());
+            PlayerTransferSummary summary = summaries.get(transferDTO.getPlayerId());
+            Long oldTeamId = summary != null ? summary.getCurrentTeamId() : transferDTO.getNewTeamId();
+            if (playerDTO == null
+                    || (summary != null && oldTeamId.equals(transferDTO.getNewTeamId()))
+                    || !existingTeamIds.contains(transferDTO.getNewTeamId())
+                    || (checkedTeamIds.contains(oldTeamId) && !existingTeamIds.contains(oldTeamId))) {
+                results.add(new TransferResultDTO(i, null, "Invalid team/player id(s)."));
+                continue;
+            }
 
+            Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+            Transfer transfer = new Transfer(
+                    createdAt,
+                    playerDTO.getId(),
+                    oldTeamId,
+                    transferDTO.getNewTeamId(),
+                    contractFee(summary, playerDTO, transferDTO.getCommission())
+            );
+            transfers.add(transfer);
+
+            if (summary == null) {
+                summary = new PlayerTransferSummary(playerDTO.getId(), createdAt, transferDTO.getNewTeamId(), 0L);
+                summaries.put(summary.getPlayerId(), summary);
+            }
+            summary.setCurrentTeamId(transferDTO.getNewTeamId());
+            summary.setTransferCount(summary.getTransferCount() + 1);
+            touchedSummaries.put(summary.getPlayerId(), summary);
+            results.add(new TransferResultDTO(i, transfer, null));
+        }
+
+        transferRepository.saveAll(transfers);
+        outboxService.record(OutboxEvent.TRANSFER, OutboxEvent.CREATED, transfers, Transfer::getId);
+        playerTransferSummaryRepository.saveAll(touchedSummaries.values());
+        transfers.forEach(transfer -> transferHistoryIndex.recordAfterCommit(
+                transfer.getPlayerId(), transfer.getNewTeamId(), transfer.getCreatedAt()));
+        return results;
+    }
+
+    private Optional<PlayerTransferSummary> findSummary(Long playerId) {
+        return transferHistoryIndex.isReady()
+                ? transferHistoryIndex.getSummary(playerId)
+                : playerTransferSummaryRepository.findById(playerId);
+    }
 
+    private static Long currentTeamId(Optional<PlayerTransferSummary> optionalSummary, CreateTransferDTO transferDTO) {
+        if (!optionalSummary.isPresent())
+            return transferDTO.getNewTeamId();
+        if (optionalSummary.get().getCurrentTeamId().equals(transferDTO.getNewTeamId()))
+            throw new InvalidIDException();
+        return optionalSummary.get().getCurrentTeamId();
+    }
 
+    private static double contractFee(PlayerTransferSummary summary, PlayerDTO playerDTO, int commission) {
+        long months = 0;
+        if (summary != null)
+            months = ChronoUnit.MONTHS.between(summary.getFirstTransferAt().toLocalDateTime(), LocalDateTime.now());
 
+        int period = Period.between(playerDTO.getDateOfBirth(), LocalDate.now()).getYears();
+        if (period == 0) period = 1;
+        double transferFee = months * 100000 / period;
+        return transferFee + transferFee * commission / 100;
+    }
 
+    private <T> T timed(String hop, Supplier<T> call) {
+        return meterRegistry.timer("transfer.create.hop", "hop", hop).record(call);
+    }
 
+    private <T> CompletableFuture<T> timed(String hop, CompletableFuture<T> future) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return future.whenComplete((result, e) -> sample.stop(meterRegistry.timer("transfer.create.hop", "hop", hop)));
+    }
 
+    private <T> CompletableFuture<T> timedAsync(String hop, Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> timed(hop, call), remoteCallExecutor);
+    }
 
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
 
+}
 
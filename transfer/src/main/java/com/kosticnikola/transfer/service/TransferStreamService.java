@@ -0,0 +1,250 @@
+package com.kosticnikola.transfer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.exception.TooManySubscribersException;
+import com.kosticnikola.transfer.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Service
+public class TransferStreamService {
+
+    private static final String EVENT_NAME = "transfer";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ChangeFeedService changeFeedService;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int pageSize;
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Counter sent;
+    private final Counter dropped;
+    private final ExecutorService sender;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public TransferStreamService(OutboxEventRepository outboxEventRepository,
+                                 ChangeFeedService changeFeedService,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${transfer.stream.max-subscribers:1000}") int maxSubscribers,
+                                 @Value("${transfer.stream.page-size:100}") int pageSize,
+                                 @Value("${transfer.stream.max-pending:1000}") int maxPending,
+                                 @Value("${transfer.stream.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${transfer.stream.send-timeout-ms:10000}") long sendTimeoutMillis,
+                                 @Value("${transfer.stream.sender-threads:8}") int senderThreads) {
+        this(outboxEventRepository, changeFeedService, objectMapper, meterRegistry, maxSubscribers, pageSize,
+                maxPending, timeoutMillis, sendTimeoutMillis, senderPool(senderThreads));
+    }
+
+    TransferStreamService(OutboxEventRepository outboxEventRepository,
+                          ChangeFeedService changeFeedService,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          int maxSubscribers,
+                          int pageSize,
+                          int maxPending,
+                          long timeoutMillis,
+                          long sendTimeoutMillis,
+                          ExecutorService sender) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.changeFeedService = changeFeedService;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.pageSize = pageSize;
+        this.maxPending = Math.max(maxPending, pageSize);
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.sent = meterRegistry.counter("transfer.stream.sent");
+        this.dropped = meterRegistry.counter("transfer.stream.dropped");
+        this.sender = sender;
+        Gauge.builder("transfer.stream.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long lastEventId, Long playerId, Long teamId) {
+        if (subscribers.size() >= maxSubscribers)
+            throw new TooManySubscribersException();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(
+                emitter,
+                lastEventId != null ? lastEventId : changeFeedService.getHead(),
+                playerId,
+                teamId,
+                maxPending
+        );
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.stream.poll-interval-ms:200}")
+    public void dispatch() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> {
+            if (subscriber.isStalled(now, sendTimeoutNanos))
+                drop(subscriber);
+        });
+
+        long head = changeFeedService.getHead();
+        List<Subscriber> behind = subscribers.stream()
+                .filter(subscriber -> subscriber.cursor < head && subscriber.hasRoomFor(pageSize))
+                .collect(Collectors.toList());
+        long after = behind.stream().mapToLong(subscriber -> subscriber.cursor).min().orElse(head);
+        while (after < head && !behind.isEmpty()) {
+            List<OutboxEvent> events = outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(
+                    after, PageRequest.of(0, pageSize));
+            if (events.isEmpty())
+                break;
+            long last = events.get(events.size() - 1).getFeedOffset();
+            List<StreamEvent> page = parse(events);
+            for (Subscriber subscriber : behind)
+                subscriber.offer(page, last, now);
+            behind.removeIf(subscriber -> !subscriber.hasRoomFor(pageSize));
+            if (events.size() < pageSize)
+                break;
+            after = last;
+        }
+
+        subscribers.forEach(subscriber -> {
+            if (!subscriber.pending.isEmpty() && subscriber.busy.compareAndSet(false, true))
+                sender.execute(() -> drain(subscriber));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (subscribers.contains(subscriber) && (event = subscriber.pending.poll()) != null) {
+                subscriber.emitter.send(event);
+                subscriber.progressAt = System.nanoTime();
+                sent.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.busy.set(false);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            dropped.increment();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private List<StreamEvent> parse(List<OutboxEvent> events) {
+        List<StreamEvent> page = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            if (!OutboxEvent.TRANSFER.equals(event.getAggregateType())
+                    || !OutboxEvent.CREATED.equals(event.getEventType())
+                    || event.getPayload() == null)
+                continue;
+            try {
+                page.add(new StreamEvent(event.getFeedOffset(), objectMapper.readTree(event.getPayload())));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return page;
+    }
+
+    private static ExecutorService senderPool(int senderThreads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("transfer-stream-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(senderThreads, threadFactory);
+    }
+
+    private static class StreamEvent {
+        private final long offset;
+        private final JsonNode transfer;
+
+        private StreamEvent(long offset, JsonNode transfer) {
+            this.offset = offset;
+            this.transfer = transfer;
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Long playerId;
+        private final Long teamId;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile long cursor;
+        private volatile long progressAt;
+
+        private Subscriber(SseEmitter emitter, long cursor, Long playerId, Long teamId, int maxPending) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.playerId = playerId;
+            this.teamId = teamId;
+            this.pending = new ArrayBlockingQueue<>(maxPending);
+        }
+
+        private boolean hasRoomFor(int events) {
+            return pending.remainingCapacity() >= events;
+        }
+
+        private boolean isStalled(long now, long sendTimeoutNanos) {
+            return (busy.get() || !pending.isEmpty()) && now - progressAt > sendTimeoutNanos;
+        }
+
+        private void offer(List<StreamEvent> page, long last, long now) {
+            for (StreamEvent event : page) {
+                if (event.offset <= cursor || !accepts(event.transfer))
+                    continue;
+                if (!busy.get() && pending.isEmpty())
+                    progressAt = now;
+                pending.offer(SseEmitter.event()
+                        .id(String.valueOf(event.offset))
+                        .name(EVENT_NAME)
+                        .data(event.transfer, MediaType.APPLICATION_JSON));
+            }
+            cursor = Math.max(cursor, last);
+        }
+
+        private boolean accepts(JsonNode transfer) {
+            if (playerId != null && playerId != transfer.path("playerId").asLong())
+                return false;
+            return teamId == null
+                    || teamId == transfer.path("oldTeamId").asLong()
+                    || teamId == transfer.path("newTeamId").asLong();
+        }
+    }
+
+}
@@ -2,10 +2,15 @@ package com.kosticnikola.transfer.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kosticnikola.transfer.dto.CreateTransferDTO;
+import com.kosticnikola.transfer.dto.TransferResultDTO;
+import com.kosticnikola.transfer.entity.OutboxEvent;
 import com.kosticnikola.transfer.entity.Transfer;
 import com.kosticnikola.transfer.exception.APIExceptionHandler;
+import com.kosticnikola.transfer.exception.IdempotencyKeyMismatchException;
 import com.kosticnikola.transfer.exception.InvalidIDException;
+import com.kosticnikola.transfer.service.ChangeFeedService;
 import com.kosticnikola.transfer.service.TransferService;
+import com.kosticnikola.transfer.service.TransferStreamService;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,13 +24,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
 
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class TransferControllerTest {
 
@@ -34,6 +39,12 @@ class TransferControllerTest {
     @Mock
     TransferService transferService;
 
+    @Mock
+    ChangeFeedService changeFeedService;
+
+    @Mock
+    TransferStreamService transferStreamService;
+
     @InjectMocks
     TransferController transferController;
 
@@ -54,6 +65,28 @@ class TransferControllerTest {
         }
     }
 
+    @Test
+    void getAllAfter_ShouldReturnAListOfTransfersAndAStatusCode200_IfTransferServiceReturnedAList() throws Exception {
+        List<Transfer> transfers = Arrays.asList(new Transfer(1L, 1L), new Transfer(2L, 2L));
+        Mockito.when(transferService.getAllAfter(10L, 2)).thenReturn(transfers);
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/transfer?after=10&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        Assertions.assertEquals(asJsonString(transfers), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getAllAfter_ShouldReturnAStatusCode400_IfTheCursorIsNotANumber() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/transfer?after=abc"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+    }
+
     @Test
     void getAll_ShouldReturnALongSetAndAStatusCode200_IfTransferServiceReturnedALongSet() throws Exception{
         Set<Long> ids = new HashSet<>(Arrays.asList(1L, 2L, 3L));
@@ -100,7 +133,7 @@ class TransferControllerTest {
                 1L,
                 0D
         );
-        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class)))
+        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class), Mockito.any()))
                 .thenReturn(t);
 
         MvcResult result = mockMvc.perform(
@@ -211,7 +244,7 @@ class TransferControllerTest {
 
     @Test
     void create_ShouldReturnAStatusCode400_IfAnInvalidIDExceptionIsThrown() throws Exception {
-        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class)))
+        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class), Mockito.any()))
                 .thenThrow(InvalidIDException.class);
 
         mockMvc.perform(
@@ -224,7 +257,7 @@ class TransferControllerTest {
 
     @Test
     void create_ShouldReturnAStatusCode500_IfARuntimeExceptionIsThrown() throws Exception {
-        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class)))
+        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class), Mockito.any()))
                 .thenThrow(RuntimeException.class);
 
         mockMvc.perform(
@@ -235,4 +268,84 @@ class TransferControllerTest {
                 .andReturn();
     }
 
-}
\ No newline at end of file
+    @Test
+    void create_ShouldPassTheIdempotencyKeyToTransferService_IfTheHeaderIsProvided() throws Exception {
+        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class), Mockito.eq("key-1")))
+                .thenReturn(new Transfer(1L, 1L));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/transfer")
+                        .header("Idempotency-Key", "key-1")
+                        .content(asJsonString(new CreateTransferDTO(1L, 1L, 5)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    @Test
+    void create_ShouldReturnAStatusCode422_IfTheIdempotencyKeyWasUsedForADifferentTransfer() throws Exception {
+        Mockito.when(transferService.create(Mockito.any(CreateTransferDTO.class), Mockito.any()))
+                .thenThrow(IdempotencyKeyMismatchException.class);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/transfer")
+                        .header("Idempotency-Key", "key-1")
+                        .content(asJsonString(new CreateTransferDTO(1L, 1L, 5)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity())
+                .andReturn();
+    }
+
+    @Test
+    void createAll_ShouldReturnPerItemResultsAndAStatusCode200_IfTransferServiceReturnedResults() throws Exception {
+        List<TransferResultDTO> results = Arrays.asList(
+                new TransferResultDTO(0, new Transfer(1L, 2L), null),
+                new TransferResultDTO(1, null, "Invalid team/player id(s).")
+        );
+        Mockito.when(transferService.createAll(Mockito.anyList())).thenReturn(results);
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/transfer/bulk")
+                        .content(asJsonString(Arrays.asList(
+                                new CreateTransferDTO(1L, 2L, 5),
+                                new CreateTransferDTO(3L, 4L, 5))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals(asJsonString(results), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getChangesAfter_ShouldReturnTheChangesAndAStatusCode200_IfChangeFeedServiceReturnedChanges() throws Exception {
+        OutboxEvent event = new OutboxEvent();
+        event.setFeedOffset(6L);
+        event.setAggregateType(OutboxEvent.TRANSFER);
+        event.setAggregateId(1L);
+        event.setEventType(OutboxEvent.CREATED);
+        event.setPayload("{\"id\":1,\"playerId\":2,\"newTeamId\":3}");
+        DeferredResult<List<OutboxEvent>> result = new DeferredResult<>();
+        result.setResult(Collections.singletonList(event));
+        Mockito.when(changeFeedService.getChangesAfter(5L, 100, 1000L)).thenReturn(result);
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/changes?after=5&waitMs=1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].offset").value(6))
+                .andExpect(jsonPath("$[0].payload.newTeamId").value(3))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+    @Test
+    void getChangesHead_ShouldReturnTheHeadAndAStatusCode200() throws Exception {
+        Mockito.when(changeFeedService.getHead()).thenReturn(42L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/changes/head"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("42"));
+    }
+
+}
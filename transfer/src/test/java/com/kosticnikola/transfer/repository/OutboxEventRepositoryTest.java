@@ -0,0 +1,53 @@
+package com.kosticnikola.transfer.repository;
+
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OutboxEventRepositoryTest {
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+    }
+
+    void insertEvent(long aggregateId, LocalDateTime createdAt) {
+        jdbcTemplate.update(
+                "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, created_at) VALUES (?, ?, ?, ?)",
+                OutboxEvent.TRANSFER, aggregateId, OutboxEvent.CREATED, Timestamp.valueOf(createdAt));
+    }
+
+    @Test
+    void deletePublishedBefore_ShouldKeepTheHeadEvent_SoThatOffsetsKeepGrowingAfterAPurge() {
+        LocalDateTime expired = LocalDateTime.now().minusDays(30);
+        insertEvent(1L, expired);
+        insertEvent(2L, expired);
+        Assertions.assertEquals(2, outboxEventRepository.publishPending(1000));
+        Long head = outboxEventRepository.findHead();
+
+        Assertions.assertEquals(1, outboxEventRepository.deletePublishedBefore(Timestamp.valueOf(LocalDateTime.now())));
+        Assertions.assertEquals(head, outboxEventRepository.findHead());
+
+        insertEvent(3L, LocalDateTime.now());
+        Assertions.assertEquals(1, outboxEventRepository.publishPending(1000));
+        Assertions.assertEquals(head + 1, jdbcTemplate.queryForObject(
+                "SELECT feed_offset FROM outbox_events WHERE aggregate_id = 3", Long.class));
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.kosticnikola.transfer.repository;
+
+import com.kosticnikola.transfer.entity.Transfer;
+import lombok.NoArgsConstructor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransferInsertBenchmarkTest {
+
+    static final Logger LOGGER = LoggerFactory.getLogger(TransferInsertBenchmarkTest.class);
+    static final int ROWS = 20000;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE identity_transfers (" +
+                "id BIGSERIAL PRIMARY KEY, created_at TIMESTAMP, player_id BIGINT, " +
+                "old_team_id BIGINT, new_team_id BIGINT, contract_fee DOUBLE PRECISION)");
+    }
+
+    double insertRowsPerSecond(int jdbcBatchSize, Consumer<Integer> persist) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++)
+            persist.accept(i);
+        entityManager.flush();
+        long elapsed = System.nanoTime() - start;
+        entityManager.clear();
+        return ROWS / (elapsed / 1_000_000_000.0);
+    }
+
+    double insertSequenceTransfers(int jdbcBatchSize) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return insertRowsPerSecond(jdbcBatchSize, i -> entityManager.persist(
+                new Transfer(now, (long) i % 2000, (long) i % 50, (long) (i + 1) % 50, 0.0)));
+    }
+
+    double insertIdentityTransfers() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return insertRowsPerSecond(50, i -> entityManager.persist(
+                new IdentityTransfer(now, (long) i % 2000, (long) i % 50, (long) (i + 1) % 50, 0.0)));
+    }
+
+    @Test
+    void persist_ShouldInsertFaster_WithPooledSequenceIdsAndJdbcBatching_ThanWithIdentityIds() {
+        insertSequenceTransfers(50);
+        insertIdentityTransfers();
+
+        double identity = insertIdentityTransfers();
+        double sequencePerRow = insertSequenceTransfers(1);
+        double sequenceBatched = insertSequenceTransfers(50);
+        LOGGER.info("transfers insert: identity {} rows/s, sequence per-row {} rows/s, sequence batched {} rows/s ({}x over identity)",
+                Math.round(identity), Math.round(sequencePerRow), Math.round(sequenceBatched),
+                String.format("%.1f", sequenceBatched / identity));
+
+        Assertions.assertTrue(sequenceBatched > identity);
+    }
+
+    @NoArgsConstructor
+    @Entity
+    @Table(name = "identity_transfers")
+    static class IdentityTransfer {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "created_at")
+        private Timestamp createdAt;
+
+        @Column(name = "player_id")
+        private Long playerId;
+
+        @Column(name = "old_team_id")
+        private Long oldTeamId;
+
+        @Column(name = "new_team_id")
+        private Long newTeamId;
+
+        @Column(name = "contract_fee")
+        private Double contractFee;
+
+        IdentityTransfer(Timestamp createdAt, Long playerId, Long oldTeamId, Long newTeamId, Double contractFee) {
+            this.createdAt = createdAt;
+            this.playerId = playerId;
+            this.oldTeamId = oldTeamId;
+            this.newTeamId = newTeamId;
+            this.contractFee = contractFee;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.kosticnikola.transfer.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.kosticnikola.transfer.repository.TransferRepositoryTest$CapturingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TransferRepositoryTest {
+
+    @Autowired
+    TransferRepository transferRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update(
+                "INSERT INTO transfers (id, created_at, player_id, old_team_id, new_team_id, contract_fee) " +
+                "SELECT -g, now() - g * interval '1 hour', g % 2000, g % 50, (g + 1) % 50, 0 " +
+                "FROM generate_series(1, 50000) g"
+        );
+        jdbcTemplate.execute("ANALYZE transfers");
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    String capturedQuery() {
+        List<String> queries = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select") && sql.contains("transfers"))
+                .collect(Collectors.toList());
+        Assertions.assertEquals(1, queries.size(), queries.toString());
+        return queries.get(0);
+    }
+
+    String explain(String query, Object... parameters) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + query, String.class, parameters);
+        return String.join("\n", plan);
+    }
+
+    void assertUsesIndexScan(Object... parameters) {
+        String query = capturedQuery();
+        String plan = explain(query, parameters);
+        Assertions.assertFalse(plan.contains("Seq Scan"), query + "\n" + plan);
+        Assertions.assertTrue(plan.toLowerCase().contains("idx_transfer_player_id_created_at"), query + "\n" + plan);
+    }
+
+    @Test
+    void findAllByPlayerId_ShouldUseThePlayerIdCreatedAtIndex() {
+        transferRepository.findAllByPlayerId(42L);
+        assertUsesIndexScan(42L);
+    }
+
+    @Test
+    void findDistinctNewTeamIdsByPlayerId_ShouldUseThePlayerIdCreatedAtIndex() {
+        transferRepository.findDistinctNewTeamIdsByPlayerId(42L);
+        assertUsesIndexScan(42L);
+    }
+
+    @Test
+    void findFirstByPlayerIdOrderByCreatedAtAsc_ShouldUseThePlayerIdCreatedAtIndex() {
+        transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(42L);
+        assertUsesIndexScan(42L, 1);
+    }
+
+    @Test
+    void findFirstByPlayerIdOrderByCreatedAtDesc_ShouldUseThePlayerIdCreatedAtIndex() {
+        transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(42L);
+        assertUsesIndexScan(42L, 1);
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+}
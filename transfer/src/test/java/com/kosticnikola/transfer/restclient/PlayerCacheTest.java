@@ -0,0 +1,133 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.dto.PlayerChangeDTO;
+import com.kosticnikola.transfer.exception.InvalidIDException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class PlayerCacheTest {
+
+    @Mock
+    PlayerClient playerClient;
+
+    PlayerCache playerCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        playerCache = new PlayerCache(playerClient, new SyncTaskExecutor(), new SimpleMeterRegistry(),
+                true, 100, 60, 0, 2);
+    }
+
+    PlayerDTO player(long id) {
+        return new PlayerDTO(id, 100 + id, "Peter", LocalDate.of(2000, 1, 1));
+    }
+
+    @Test
+    void get_ShouldCallPlayerClientOnce_IfThePlayerIsRequestedRepeatedly() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L));
+
+        playerCache.get(1L);
+        playerCache.get(1L);
+
+        Mockito.verify(playerClient, Mockito.times(1)).getPlayerTeams(1L);
+    }
+
+    @Test
+    void get_ShouldNotCacheTheFailure_IfPlayerClientThrewAnInvalidIDException() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenThrow(InvalidIDException.class).thenReturn(player(1L));
+
+        Assertions.assertThrows(InvalidIDException.class, () -> playerCache.get(1L));
+        Assertions.assertEquals(player(1L), playerCache.get(1L));
+    }
+
+    @Test
+    void getAll_ShouldFetchOnlyTheMissingPlayersInOneCall() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L));
+        Mockito.when(playerClient.getPlayers(Mockito.anyList())).thenReturn(Arrays.asList(player(2L), player(3L)));
+        playerCache.get(1L);
+
+        List<PlayerDTO> players = playerCache.getAll(Arrays.asList(1L, 2L, 3L, 4L));
+
+        Assertions.assertEquals(3, players.size());
+        Mockito.verify(playerClient).getPlayers(Mockito.argThat(ids -> !ids.contains(1L) && ids.size() == 3));
+    }
+
+    @Test
+    void applyEvents_ShouldStartFromTheFeedHeadAndDropPlayersCachedBeforeIt() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L));
+        Mockito.when(playerClient.getChangesHead()).thenReturn(4L);
+        Mockito.when(playerClient.getChanges(4L, 2)).thenReturn(Collections.emptyList());
+        playerCache.get(1L);
+
+        playerCache.applyEvents();
+        playerCache.applyEvents();
+        playerCache.get(1L);
+
+        Mockito.verify(playerClient, Mockito.times(1)).getChangesHead();
+        Mockito.verify(playerClient, Mockito.times(2)).getChanges(4L, 2);
+        Mockito.verify(playerClient, Mockito.times(2)).getPlayerTeams(1L);
+    }
+
+    @Test
+    void applyEvents_ShouldInvalidateChangedPlayersAndResumeAfterTheLastChange() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L));
+        Mockito.when(playerClient.getPlayerTeams(2L)).thenReturn(player(2L));
+        Mockito.when(playerClient.getChangesHead()).thenReturn(4L);
+        Mockito.when(playerClient.getChanges(4L, 2)).thenReturn(Collections.emptyList()).thenReturn(Arrays.asList(
+                new PlayerChangeDTO(5L, 1L, "UPDATED"),
+                new PlayerChangeDTO(6L, 3L, "DELETED")
+        ));
+        Mockito.when(playerClient.getChanges(6L, 2)).thenReturn(Collections.emptyList());
+        playerCache.applyEvents();
+        playerCache.get(1L);
+        playerCache.get(2L);
+
+        playerCache.applyEvents();
+        playerCache.get(1L);
+        playerCache.get(2L);
+
+        Mockito.verify(playerClient, Mockito.times(2)).getPlayerTeams(1L);
+        Mockito.verify(playerClient, Mockito.times(1)).getPlayerTeams(2L);
+        Mockito.verify(playerClient).getChanges(6L, 2);
+    }
+
+    @Test
+    void get_ShouldServeTheStaleValueWhileRevalidating_IfTheRefreshFails() throws Exception {
+        playerCache = new PlayerCache(playerClient, new SyncTaskExecutor(), new SimpleMeterRegistry(),
+                true, 100, 60, 1, 2);
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L)).thenThrow(RuntimeException.class);
+        playerCache.get(1L);
+        Thread.sleep(1100);
+
+        Assertions.assertEquals(player(1L), playerCache.get(1L));
+        Assertions.assertEquals(player(1L), playerCache.get(1L));
+        Mockito.verify(playerClient, Mockito.atLeast(2)).getPlayerTeams(1L);
+    }
+
+    @Test
+    void get_ShouldDropThePlayer_IfTheRefreshFindsItDeleted() throws Exception {
+        playerCache = new PlayerCache(playerClient, new SyncTaskExecutor(), new SimpleMeterRegistry(),
+                true, 100, 60, 1, 2);
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(player(1L)).thenThrow(InvalidIDException.class);
+        playerCache.get(1L);
+        Thread.sleep(1100);
+
+        playerCache.get(1L);
+
+        Assertions.assertThrows(InvalidIDException.class, () -> playerCache.get(1L));
+    }
+
+}
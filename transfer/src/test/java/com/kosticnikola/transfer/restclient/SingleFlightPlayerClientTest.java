@@ -0,0 +1,106 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.exception.InvalidIDException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+class SingleFlightPlayerClientTest {
+
+    @Mock
+    PlayerClient playerClient;
+
+    @Mock
+    PlayerCache playerCache;
+
+    SingleFlightPlayerClient singleFlightPlayerClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        singleFlightPlayerClient = new SingleFlightPlayerClient(playerClient, playerCache, true);
+    }
+
+    @Test
+    void getPlayerTeams_ShouldCallPlayerClientOnce_IfConcurrentCallersAskForTheSamePlayer() throws Exception {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return dto;
+        });
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<PlayerDTO>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlightPlayerClient.getPlayerTeams(1L)));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            CountDownLatch followersStarted = new CountDownLatch(callers - 1);
+            for (int i = 1; i < callers; i++)
+                results.add(executor.submit(() -> {
+                    followersStarted.countDown();
+                    return singleFlightPlayerClient.getPlayerTeams(1L);
+                }));
+            Assertions.assertTrue(followersStarted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<PlayerDTO> result : results)
+                Assertions.assertSame(dto, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        Mockito.verify(playerClient, Mockito.times(1)).getPlayerTeams(1L);
+    }
+
+    @Test
+    void getPlayerTeams_ShouldCallPlayerClientAgain_IfThePreviousCallHasCompleted() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenReturn(dto);
+
+        singleFlightPlayerClient.getPlayerTeams(1L);
+        singleFlightPlayerClient.getPlayerTeams(1L);
+
+        Mockito.verify(playerClient, Mockito.times(2)).getPlayerTeams(1L);
+    }
+
+    @Test
+    void getPlayerTeams_ShouldThrowAnInvalidIDException_IfPlayerClientThrewAnInvalidIDException() {
+        Mockito.when(playerClient.getPlayerTeams(1L)).thenThrow(InvalidIDException.class);
+
+        Assertions.assertThrows(
+                InvalidIDException.class,
+                () -> singleFlightPlayerClient.getPlayerTeams(1L)
+        );
+    }
+
+    @Test
+    void checkPlayerExists_ShouldNotCallPlayerClient_IfTheCheckIsDisabled() {
+        new SingleFlightPlayerClient(playerClient, playerCache, false).checkPlayerExists(1L);
+
+        Mockito.verifyNoInteractions(playerClient);
+    }
+
+    @Test
+    void getPlayerTeams_ShouldReadThroughThePlayerCache_IfTheCacheIsEnabled() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(playerCache.isEnabled()).thenReturn(true);
+        Mockito.when(playerCache.get(1L)).thenReturn(dto);
+
+        Assertions.assertSame(dto, singleFlightPlayerClient.getPlayerTeams(1L));
+        Mockito.verifyNoInteractions(playerClient);
+    }
+
+}
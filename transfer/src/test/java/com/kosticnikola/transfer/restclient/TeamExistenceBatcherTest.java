@@ -0,0 +1,130 @@
+package com.kosticnikola.transfer.restclient;
+
+import com.kosticnikola.transfer.exception.InvalidIDException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class TeamExistenceBatcherTest {
+
+    @Mock
+    TeamClient teamClient;
+
+    TeamExistenceBatcher teamExistenceBatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        teamExistenceBatcher = new TeamExistenceBatcher(
+                teamClient,
+                Executors.newSingleThreadExecutor(),
+                new SimpleMeterRegistry(),
+                50,
+                4
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        teamExistenceBatcher.shutdown();
+    }
+
+    @Test
+    void submit_ShouldSendOneCombinedCall_IfPendingIdsReachMaxIds() throws Exception {
+        Mockito.when(teamClient.getExistingTeamIds(Mockito.anyList()))
+                .thenReturn(Arrays.asList(1L, 2L, 3L));
+
+        CompletableFuture<Void> first = teamExistenceBatcher.submit(Arrays.asList(1L, 2L));
+        CompletableFuture<Void> second = teamExistenceBatcher.submit(Arrays.asList(3L, 3L));
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> argument = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(teamClient, Mockito.times(1)).getExistingTeamIds(argument.capture());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), new HashSet<>(argument.getValue()));
+    }
+
+    @Test
+    void submit_ShouldSendTheBatch_IfMaxWaitElapsedBeforeMaxIdsWasReached() throws Exception {
+        Mockito.when(teamClient.getExistingTeamIds(Mockito.anyList()))
+                .thenReturn(Arrays.asList(1L, 2L));
+
+        teamExistenceBatcher.submit(Arrays.asList(1L, 2L)).get(1, TimeUnit.SECONDS);
+
+        Mockito.verify(teamClient, Mockito.times(1)).getExistingTeamIds(Mockito.anyList());
+    }
+
+    @Test
+    void submit_ShouldFailOnlyTheCallersWithMissingIds() throws Exception {
+        Mockito.when(teamClient.getExistingTeamIds(Mockito.anyList()))
+                .thenReturn(Arrays.asList(1L, 2L));
+
+        CompletableFuture<Void> valid = teamExistenceBatcher.submit(Arrays.asList(1L, 2L));
+        CompletableFuture<Void> invalid = teamExistenceBatcher.submit(Arrays.asList(1L, 5L));
+
+        valid.get(1, TimeUnit.SECONDS);
+        ExecutionException e = Assertions.assertThrows(
+                ExecutionException.class,
+                () -> invalid.get(1, TimeUnit.SECONDS)
+        );
+        Assertions.assertTrue(e.getCause() instanceof InvalidIDException);
+    }
+
+    @Test
+    void submit_ShouldFailEveryCallerInTheBatch_IfTeamClientThrewAnException() {
+        Mockito.when(teamClient.getExistingTeamIds(Mockito.anyList()))
+                .thenThrow(RuntimeException.class);
+
+        CompletableFuture<Void> first = teamExistenceBatcher.submit(Arrays.asList(1L, 2L));
+        CompletableFuture<Void> second = teamExistenceBatcher.submit(Arrays.asList(3L, 4L));
+
+        Assertions.assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        Assertions.assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_ShouldFailEveryCallerInTheBatchWithoutCallingTeamClient_IfTheDispatcherRejectedIt() {
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+        dispatcher.shutdown();
+        TeamExistenceBatcher rejectingBatcher = new TeamExistenceBatcher(
+                teamClient,
+                dispatcher,
+                new SimpleMeterRegistry(),
+                50,
+                4
+        );
+
+        CompletableFuture<Void> first = rejectingBatcher.submit(Arrays.asList(1L, 2L));
+        CompletableFuture<Void> second = rejectingBatcher.submit(Arrays.asList(3L, 4L));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        Assertions.assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        Mockito.verifyNoInteractions(teamClient);
+        rejectingBatcher.shutdown();
+    }
+
+    @Test
+    void getExistingIds_ShouldReturnAnEmptySetWithoutARemoteCall_IfNoIdsWereProvided() {
+        Assertions.assertTrue(teamExistenceBatcher.getExistingIds(new HashSet<>()).isEmpty());
+        Mockito.verifyNoInteractions(teamClient);
+    }
+
+}
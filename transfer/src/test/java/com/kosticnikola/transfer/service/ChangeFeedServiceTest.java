@@ -0,0 +1,111 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collections;
+import java.util.List;
+
+class ChangeFeedServiceTest {
+
+    @Mock
+    OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    ChangeFeedService changeFeedService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        changeFeedService = new ChangeFeedService(outboxEventRepository, transactionManager, meterRegistry, 2, 168);
+    }
+
+    static OutboxEvent event(long offset) {
+        OutboxEvent event = new OutboxEvent();
+        event.setFeedOffset(offset);
+        event.setAggregateType(OutboxEvent.TRANSFER);
+        event.setAggregateId(offset);
+        event.setEventType(OutboxEvent.CREATED);
+        return event;
+    }
+
+    @Test
+    void relay_ShouldPublishUntilAPartialBatchAndAdvanceTheHead() {
+        Mockito.when(outboxEventRepository.tryLock(Mockito.anyLong())).thenReturn(true);
+        Mockito.when(outboxEventRepository.publishPending(2)).thenReturn(2, 1);
+        Mockito.when(outboxEventRepository.findHead()).thenReturn(3L);
+
+        changeFeedService.relay();
+
+        Mockito.verify(outboxEventRepository, Mockito.times(2)).publishPending(2);
+        Assertions.assertEquals(3L, changeFeedService.getHead());
+        Assertions.assertEquals(3.0, meterRegistry.get("transfer.outbox.head").gauge().value());
+    }
+
+    @Test
+    void relay_ShouldNotPublish_IfAnotherInstanceHoldsTheRelayLock() {
+        Mockito.when(outboxEventRepository.tryLock(Mockito.anyLong())).thenReturn(false);
+        Mockito.when(outboxEventRepository.findHead()).thenReturn(0L);
+
+        changeFeedService.relay();
+
+        Mockito.verify(outboxEventRepository, Mockito.never()).publishPending(Mockito.anyInt());
+    }
+
+    @Test
+    void getChangesAfter_ShouldReturnImmediately_IfThereArePublishedChanges() {
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(event(1L)));
+
+        DeferredResult<List<OutboxEvent>> result = changeFeedService.getChangesAfter(0L, 10, 1000L);
+
+        Assertions.assertTrue(result.hasResult());
+        Assertions.assertEquals(1, ((List<?>) result.getResult()).size());
+    }
+
+    @Test
+    void getChangesAfter_ShouldWaitUntilTheRelayPublishesNewChanges_IfThereAreNone() {
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(Collections.singletonList(event(1L)));
+        Mockito.when(outboxEventRepository.tryLock(Mockito.anyLong())).thenReturn(true);
+        Mockito.when(outboxEventRepository.findHead()).thenReturn(1L);
+
+        DeferredResult<List<OutboxEvent>> result = changeFeedService.getChangesAfter(0L, 10, 1000L);
+
+        Assertions.assertFalse(result.hasResult());
+        Assertions.assertEquals(1.0, meterRegistry.get("transfer.outbox.waiters").gauge().value());
+
+        changeFeedService.relay();
+
+        Assertions.assertTrue(result.hasResult());
+        Assertions.assertEquals(1, ((List<?>) result.getResult()).size());
+        Assertions.assertEquals(0.0, meterRegistry.get("transfer.outbox.waiters").gauge().value());
+    }
+
+    @Test
+    void getChangesAfter_ShouldReturnAnEmptyListImmediately_IfWaitIsZero() {
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        DeferredResult<List<OutboxEvent>> result = changeFeedService.getChangesAfter(0L, 10, 0L);
+
+        Assertions.assertTrue(result.hasResult());
+        Assertions.assertTrue(((List<?>) result.getResult()).isEmpty());
+    }
+
+}
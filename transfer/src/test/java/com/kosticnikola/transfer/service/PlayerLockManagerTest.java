@@ -0,0 +1,133 @@
+package com.kosticnikola.transfer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+class PlayerLockManagerTest {
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    PlayerLockManager playerLockManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        playerLockManager = new PlayerLockManager(transactionManager, jdbcTemplate, new SimpleMeterRegistry(), 64, true);
+    }
+
+    @Test
+    void executeLocked_ShouldSerializeTransfersOfTheSamePlayer_IfManyThreadsRace() throws Exception {
+        int players = 8;
+        int threads = 16;
+        int iterations = 2000;
+        long[] counters = new long[players];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        int player = (offset + i) % players;
+                        playerLockManager.executeLocked(Collections.singleton((long) player), () -> {
+                            long current = counters[player];
+                            Thread.yield();
+                            counters[player] = current + 1;
+                            return null;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals((long) threads * iterations, Arrays.stream(counters).sum());
+        for (long counter : counters)
+            Assertions.assertEquals((long) threads * iterations / players, counter);
+    }
+
+    @Test
+    void executeLocked_ShouldRunDifferentPlayersInParallel() throws Exception {
+        long otherPlayerId = 2L;
+        while (playerLockManager.stripe(otherPlayerId) == playerLockManager.stripe(1L))
+            otherPlayerId++;
+        long secondPlayerId = otherPlayerId;
+        CountDownLatch bothInside = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> playerLockManager.executeLocked(
+                    Collections.singleton(1L), () -> await(bothInside)));
+            Future<Boolean> second = executor.submit(() -> playerLockManager.executeLocked(
+                    Collections.singleton(secondPlayerId), () -> await(bothInside)));
+
+            Assertions.assertTrue(first.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeLocked_ShouldTakeAdvisoryLocksInPlayerIdOrderInsideTheTransaction() {
+        playerLockManager.executeLocked(Arrays.asList(9L, 3L, 9L), () -> null);
+
+        InOrder inOrder = Mockito.inOrder(transactionManager, jdbcTemplate);
+        inOrder.verify(transactionManager).getTransaction(Mockito.any());
+        inOrder.verify(jdbcTemplate).query(Mockito.anyString(), Mockito.any(RowCallbackHandler.class), Mockito.eq(3L));
+        inOrder.verify(jdbcTemplate).query(Mockito.anyString(), Mockito.any(RowCallbackHandler.class), Mockito.eq(9L));
+        inOrder.verify(transactionManager).commit(Mockito.any());
+    }
+
+    @Test
+    void executeLocked_ShouldReleaseTheLock_IfTheActionThrows() throws Exception {
+        Assertions.assertThrows(IllegalStateException.class, () -> playerLockManager.executeLocked(
+                Collections.singleton(1L), () -> {
+                    throw new IllegalStateException();
+                }));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> other = executor.submit(() -> playerLockManager.executeLocked(
+                    Collections.singleton(1L), () -> 1));
+            Assertions.assertEquals(1, other.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static boolean await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
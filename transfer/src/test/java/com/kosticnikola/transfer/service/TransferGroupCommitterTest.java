@@ -0,0 +1,160 @@
+package com.kosticnikola.transfer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.transfer.entity.Transfer;
+import com.kosticnikola.transfer.exception.ConcurrentTransferException;
+import com.kosticnikola.transfer.repository.TransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferGroupCommitterTest {
+
+    static final long NEW_PLAYER_ID = 990001L;
+    static final long EXISTING_PLAYER_ID = 990002L;
+
+    @Autowired
+    TransferRepository transferRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    TransferGroupCommitter transferGroupCommitter;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        jdbcTemplate.update(
+                "INSERT INTO player_transfer_summary (player_id, first_transfer_at, current_team_id, transfer_count) " +
+                "VALUES (?, now(), 5, 3)",
+                EXISTING_PLAYER_ID
+        );
+        transferGroupCommitter = new TransferGroupCommitter(
+                transferRepository,
+                Mockito.mock(TransferHistoryIndex.class),
+                new OutboxService(jdbcTemplate, new ObjectMapper()),
+                jdbcTemplate,
+                transactionManager,
+                meterRegistry,
+                true,
+                10000,
+                2
+        );
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE aggregate_type = 'TRANSFER' AND aggregate_id IN " +
+                "(SELECT id FROM transfers WHERE player_id IN (?, ?))", NEW_PLAYER_ID, EXISTING_PLAYER_ID);
+        jdbcTemplate.update("DELETE FROM transfers WHERE player_id IN (?, ?)", NEW_PLAYER_ID, EXISTING_PLAYER_ID);
+        jdbcTemplate.update("DELETE FROM player_transfer_summary WHERE player_id IN (?, ?)", NEW_PLAYER_ID, EXISTING_PLAYER_ID);
+    }
+
+    int countOutboxEvents(long playerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events e JOIN transfers t ON t.id = e.aggregate_id " +
+                "WHERE e.aggregate_type = 'TRANSFER' AND e.event_type = 'CREATED' AND t.player_id = ?",
+                Integer.class, playerId);
+    }
+
+    Transfer transfer(long playerId, long oldTeamId, long newTeamId) {
+        return new Transfer(Timestamp.valueOf(LocalDateTime.now()), playerId, oldTeamId, newTeamId, 0d);
+    }
+
+    @Test
+    void submit_ShouldCommitConcurrentTransfersInOneBatch() throws Exception {
+        CompletableFuture<Transfer> first = transferGroupCommitter.submit(transfer(NEW_PLAYER_ID, 7L, 7L), null);
+        CompletableFuture<Transfer> second = transferGroupCommitter.submit(transfer(EXISTING_PLAYER_ID, 5L, 6L), 5L);
+
+        Assertions.assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertNotNull(second.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertEquals(1, meterRegistry.summary("transfer.group-commit.batch.size").count());
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfers WHERE player_id IN (?, ?)", Integer.class,
+                NEW_PLAYER_ID, EXISTING_PLAYER_ID));
+        Assertions.assertEquals(7L, jdbcTemplate.queryForObject(
+                "SELECT current_team_id FROM player_transfer_summary WHERE player_id = ?", Long.class, NEW_PLAYER_ID));
+        Assertions.assertEquals(4L, jdbcTemplate.queryForObject(
+                "SELECT transfer_count FROM player_transfer_summary WHERE player_id = ?", Long.class, EXISTING_PLAYER_ID));
+        Assertions.assertEquals(1, countOutboxEvents(NEW_PLAYER_ID));
+        Assertions.assertEquals(1, countOutboxEvents(EXISTING_PLAYER_ID));
+    }
+
+    @Test
+    void submit_ShouldFailWithConcurrentTransferException_IfTheSummaryChangedMeanwhile() throws Exception {
+        CompletableFuture<Transfer> stale = transferGroupCommitter.submit(transfer(EXISTING_PLAYER_ID, 4L, 6L), 4L);
+        CompletableFuture<Transfer> fresh = transferGroupCommitter.submit(transfer(NEW_PLAYER_ID, 7L, 7L), null);
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> stale.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof ConcurrentTransferException);
+        Assertions.assertNotNull(fresh.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfers WHERE player_id = ?", Integer.class, EXISTING_PLAYER_ID));
+        Assertions.assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT transfer_count FROM player_transfer_summary WHERE player_id = ?", Long.class, EXISTING_PLAYER_ID));
+    }
+
+    @Test
+    void submit_ShouldReturnTheStoredTransferAndCommitTheRest_IfAnIdempotencyKeyWasAlreadyUsed() throws Exception {
+        Long storedId = jdbcTemplate.queryForObject(
+                "INSERT INTO transfers (id, created_at, player_id, old_team_id, new_team_id, contract_fee, idempotency_key) " +
+                "SELECT LEAST(COALESCE(MIN(id), 0), 0) - 1, now(), ?, 7, 7, 0, 'group-commit-key' FROM transfers RETURNING id",
+                Long.class, NEW_PLAYER_ID);
+        Transfer retried = transfer(EXISTING_PLAYER_ID, 5L, 6L);
+        retried.setIdempotencyKey("group-commit-key");
+
+        CompletableFuture<Transfer> duplicate = transferGroupCommitter.submit(retried, 5L);
+        CompletableFuture<Transfer> fresh = transferGroupCommitter.submit(transfer(NEW_PLAYER_ID, 7L, 7L), null);
+
+        Assertions.assertEquals(storedId, duplicate.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertNotNull(fresh.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfers WHERE player_id = ?", Integer.class, EXISTING_PLAYER_ID));
+        Assertions.assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT transfer_count FROM player_transfer_summary WHERE player_id = ?", Long.class, EXISTING_PLAYER_ID));
+    }
+
+    @Test
+    void submit_ShouldCommitOneTransfer_IfTheSameIdempotencyKeyIsSubmittedTwiceInOneBatch() throws Exception {
+        Transfer first = transfer(NEW_PLAYER_ID, 7L, 7L);
+        first.setIdempotencyKey("group-commit-key");
+        Transfer second = transfer(EXISTING_PLAYER_ID, 5L, 6L);
+        second.setIdempotencyKey("group-commit-key");
+
+        CompletableFuture<Transfer> firstFuture = transferGroupCommitter.submit(first, null);
+        CompletableFuture<Transfer> secondFuture = transferGroupCommitter.submit(second, 5L);
+
+        Long id = firstFuture.get(5, TimeUnit.SECONDS).getId();
+        Assertions.assertNotNull(id);
+        Assertions.assertEquals(id, secondFuture.get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfers WHERE idempotency_key = 'group-commit-key'", Integer.class));
+        Assertions.assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT transfer_count FROM player_transfer_summary WHERE player_id = ?", Long.class, EXISTING_PLAYER_ID));
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.PlayerTransferSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+class TransferHistoryIndexTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    SimpleMeterRegistry meterRegistry;
+
+    TransferHistoryIndex transferHistoryIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        transferHistoryIndex = new TransferHistoryIndex(jdbcTemplate, meterRegistry, true, 5000, false);
+    }
+
+    @Test
+    void constructor_ShouldThrowIllegalStateException_IfEnabledWithCrossInstanceLocks() {
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new TransferHistoryIndex(jdbcTemplate, meterRegistry, true, 5000, true));
+    }
+
+    @Test
+    void warm_ShouldMarkTheIndexReady_AfterReadingTheTransfersTable() {
+        transferHistoryIndex.warm();
+
+        Assertions.assertTrue(transferHistoryIndex.isReady());
+        Mockito.verify(jdbcTemplate).query(Mockito.anyString(), Mockito.any(RowCallbackHandler.class), Mockito.eq(0L), Mockito.anyInt());
+    }
+
+    @Test
+    void getSummary_ShouldTrackFirstTransferCurrentTeamAndCount_RegardlessOfRecordOrder() {
+        transferHistoryIndex.record(7L, 2L, 2000L);
+        transferHistoryIndex.record(7L, 1L, 1000L);
+        transferHistoryIndex.record(7L, 3L, 3000L);
+        transferHistoryIndex.record(7L, 2L, 4000L);
+
+        PlayerTransferSummary summary = transferHistoryIndex.getSummary(7L).get();
+        Assertions.assertEquals(new Timestamp(1000L), summary.getFirstTransferAt());
+        Assertions.assertEquals(2L, summary.getCurrentTeamId());
+        Assertions.assertEquals(4L, summary.getTransferCount());
+        Assertions.assertArrayEquals(new long[]{2L, 1L, 3L}, transferHistoryIndex.getTeamIds(7L));
+        Assertions.assertFalse(transferHistoryIndex.getSummary(8L).isPresent());
+        Assertions.assertEquals(0, transferHistoryIndex.getTeamIds(8L).length);
+    }
+
+    @Test
+    void record_ShouldKeepEveryPlayer_WhenTheIndexGrows() {
+        for (long playerId = 1; playerId <= 4000; playerId++)
+            transferHistoryIndex.record(playerId, playerId % 20, playerId);
+
+        Assertions.assertEquals(4000, transferHistoryIndex.size());
+        for (long playerId = 1; playerId <= 4000; playerId++)
+            Assertions.assertArrayEquals(new long[]{playerId % 20}, transferHistoryIndex.getTeamIds(playerId));
+        Assertions.assertEquals(4000.0, meterRegistry.get("transfer.history-index.players").gauge().value());
+        Assertions.assertTrue(meterRegistry.get("transfer.history-index.memory").gauge().value() > 4000 * 8);
+    }
+
+    @Test
+    void record_ShouldDisableTheIndexAndReleaseItsMemory_IfMaxPlayersIsExceeded() {
+        transferHistoryIndex.warm();
+        for (long playerId = 1; playerId <= 5001; playerId++)
+            transferHistoryIndex.record(playerId, 1L, playerId);
+
+        Assertions.assertFalse(transferHistoryIndex.isReady());
+        Assertions.assertEquals(0, transferHistoryIndex.size());
+        transferHistoryIndex.recordAfterCommit(1L, 1L, new Timestamp(1L));
+        Assertions.assertEquals(0, transferHistoryIndex.size());
+    }
+
+    @Test
+    void getTeamIds_ShouldReturnACopy() {
+        transferHistoryIndex.record(1L, 1L, 1L);
+        transferHistoryIndex.getTeamIds(1L)[0] = 99L;
+
+        Assertions.assertTrue(Arrays.equals(new long[]{1L}, transferHistoryIndex.getTeamIds(1L)));
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.kosticnikola.transfer.service;
+
+import com.kosticnikola.transfer.entity.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TransferIdempotencyCacheTest {
+
+    @Test
+    void get_ShouldReturnTheCachedTransferWithoutCallingTheLoader_IfTheKeyWasSeen() {
+        TransferIdempotencyCache cache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 10, 60);
+        Transfer transfer = new Transfer(1L, 2L);
+        cache.get("key", () -> transfer);
+
+        Assertions.assertSame(transfer, cache.get("key", () -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    @Test
+    void get_ShouldCallTheLoaderAgain_IfTheEntryExpired() {
+        TransferIdempotencyCache cache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 10, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", () -> new Transfer(loads.incrementAndGet(), 2L));
+        cache.get("key", () -> new Transfer(loads.incrementAndGet(), 2L));
+
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_ShouldEvictTheOldestEntries_IfTheCacheIsFull() {
+        TransferIdempotencyCache cache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 2, 60);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (String key : new String[]{"a", "b", "c", "a"})
+            cache.get(key, () -> new Transfer(loads.incrementAndGet(), 2L));
+
+        Assertions.assertEquals(4, loads.get());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void get_ShouldNotCacheTheResult_IfTheLoaderThrows() {
+        TransferIdempotencyCache cache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 10, 60);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException();
+        }));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_ShouldCallTheLoaderOnce_IfTheSameKeyIsRetriedConcurrently() throws Exception {
+        TransferIdempotencyCache cache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 10, 60);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Transfer> first = executor.submit(() -> cache.get("key", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return new Transfer(1L, 2L);
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<Transfer> second = executor.submit(() -> cache.get("key", () -> new Transfer(loads.incrementAndGet(), 2L)));
+            Thread.sleep(50);
+            release.countDown();
+
+            Assertions.assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
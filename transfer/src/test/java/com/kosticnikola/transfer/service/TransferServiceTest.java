@@ -2,21 +2,33 @@ package com.kosticnikola.transfer.service;
 
 import com.kosticnikola.transfer.dto.CreateTransferDTO;
 import com.kosticnikola.transfer.dto.PlayerDTO;
+import com.kosticnikola.transfer.dto.TransferResultDTO;
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.entity.PlayerTransferSummary;
 import com.kosticnikola.transfer.entity.Transfer;
+import com.kosticnikola.transfer.exception.ConcurrentTransferException;
+import com.kosticnikola.transfer.exception.IdempotencyKeyMismatchException;
 import com.kosticnikola.transfer.exception.InvalidIDException;
+import com.kosticnikola.transfer.repository.PlayerTransferSummaryRepository;
 import com.kosticnikola.transfer.repository.TransferRepository;
-import com.kosticnikola.transfer.restclient.PlayerClient;
-import com.kosticnikola.transfer.restclient.TeamClient;
+import com.kosticnikola.transfer.restclient.SingleFlightPlayerClient;
+import com.kosticnikola.transfer.restclient.TeamExistenceBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 class TransferServiceTest {
 
@@ -24,10 +36,34 @@ class TransferServiceTest {
     TransferRepository transferRepository;
 
     @Mock
-    PlayerClient playerClient;
+    PlayerTransferSummaryRepository playerTransferSummaryRepository;
 
     @Mock
-    TeamClient teamClient;
+    SingleFlightPlayerClient playerClient;
+
+    @Mock
+    TeamExistenceBatcher teamExistenceBatcher;
+
+    @Mock
+    TransferHistoryIndex transferHistoryIndex;
+
+    @Mock
+    PlayerLockManager playerLockManager;
+
+    @Mock
+    TransferGroupCommitter transferGroupCommitter;
+
+    @Mock
+    OutboxService outboxService;
+
+    @Spy
+    TransferIdempotencyCache transferIdempotencyCache = new TransferIdempotencyCache(new SimpleMeterRegistry(), 100, 60);
+
+    @Spy
+    SyncTaskExecutor remoteCallExecutor = new SyncTaskExecutor();
+
+    @Spy
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     TransferService transferService;
@@ -35,62 +71,122 @@ class TransferServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        Mockito.when(playerLockManager.executeLocked(Mockito.anyCollection(), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        Mockito.when(playerLockManager.executeStriped(Mockito.anyCollection(), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        Mockito.when(transferRepository.save(Mockito.any(Transfer.class))).then(AdditionalAnswers.returnsFirstArg());
     }
 
     @Test
-    void getAllTeamIdsByPlayerId_ShouldReturnAnEmptySet_IfTransferRepositoryReturnedAnEmptyList() {
-        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
-        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findAllByPlayerId(Mockito.anyLong()))
+    void getAllAfter_ShouldReturnTheNextPageOfTransfers_OrderedById() {
+        List<Transfer> list = Arrays.asList(new Transfer(1L, 1L), new Transfer(2L, 2L));
+        Mockito.when(transferRepository.findAllByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 2)))
+                .thenReturn(list);
+
+        Assertions.assertEquals(list, transferService.getAllAfter(5L, 2));
+    }
+
+    @Test
+    void getAllTeamIdsByPlayerId_ShouldReturnAnEmptySetAndCheckThatThePlayerExists_IfThePlayerHasNoTransfers() {
+        Mockito.when(transferRepository.findDistinctNewTeamIdsByPlayerId(Mockito.anyLong()))
                 .thenReturn(new ArrayList<>());
 
         Assertions.assertEquals(
                 0,
                 transferService.getAllTeamIdsByPlayerId(1L).size()
         );
+        Mockito.verify(playerClient).checkPlayerExists(1L);
     }
 
     @Test
-    void getAllTeamIdsByPlayerId_ShouldReturnASet_IfTransferRepositoryReturnedAList() {
-        List<Transfer> list = Arrays.asList(
-                new Transfer(1L, 1L),
-                new Transfer(1L, 2L),
-                new Transfer(2L, 3L),
-                new Transfer(3L, 1L)
+    void getAllTeamIdsByPlayerId_ShouldThrowAnInvalidIDException_IfThePlayerHasNoTransfersAndDoesNotExist() {
+        Mockito.when(transferRepository.findDistinctNewTeamIdsByPlayerId(Mockito.anyLong()))
+                .thenReturn(new ArrayList<>());
+        Mockito.doThrow(InvalidIDException.class).when(playerClient).checkPlayerExists(Mockito.anyLong());
+
+        Assertions.assertThrows(
+                InvalidIDException.class,
+                () -> transferService.getAllTeamIdsByPlayerId(1L)
         );
+    }
+
+    @Test
+    void getAllTeamIdsByPlayerId_ShouldReturnASetWithoutARemoteCall_IfTransferRepositoryReturnedTeamIds() {
+        Mockito.when(transferRepository.findDistinctNewTeamIdsByPlayerId(Mockito.anyLong()))
+                .thenReturn(Arrays.asList(1L, 2L, 3L));
+
+        Assertions.assertEquals(
+                new HashSet<>(Arrays.asList(1L, 2L, 3L)),
+                transferService.getAllTeamIdsByPlayerId(1L)
+        );
+        Mockito.verifyNoInteractions(playerClient);
+        Mockito.verify(transferRepository, Mockito.never()).findAllByPlayerId(Mockito.anyLong());
+    }
+
+    @Test
+    void getAllTeamIdsByPlayerId_ShouldReadTheTransferHistoryIndex_IfItIsReady() {
+        Mockito.when(transferHistoryIndex.isReady()).thenReturn(true);
+        Mockito.when(transferHistoryIndex.getTeamIds(1L)).thenReturn(new long[]{4L, 5L});
+
+        Assertions.assertEquals(
+                new HashSet<>(Arrays.asList(4L, 5L)),
+                transferService.getAllTeamIdsByPlayerId(1L)
+        );
+        Mockito.verifyNoInteractions(transferRepository, playerClient);
+    }
+
+    @Test
+    void create_ShouldThrowAnInvalidIDException_IfTheCurrentTeamIdEqualsProvidedNewTeamId() {
         PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findAllByPlayerId(Mockito.anyLong()))
-                .thenReturn(list);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.of(new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), 1L, 1L)));
 
-        Assertions.assertEquals(
-                (int) list.stream().map(Transfer::getNewTeamId).distinct().count(),
-                transferService.getAllTeamIdsByPlayerId(1L).size()
+        Assertions.assertThrows(
+                InvalidIDException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 1L, 5))
         );
     }
 
     @Test
-    void create_ShouldThrowAnInvalidIDException_IfTheLastTransferNewTeamIdEqualsProvidedNewTeamId() {
+    void create_ShouldThrowAnInvalidIDException_IfTeamExistenceBatcherFailedWithAnInvalidIDException() {
         PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(Mockito.anyLong()))
-                .thenReturn(Optional.of(new Transfer(1L, 1L)));
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty());
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new InvalidIDException());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(failed);
 
         Assertions.assertThrows(
                 InvalidIDException.class,
                 () -> transferService.create(new CreateTransferDTO(1L, 1L, 5))
         );
+        Mockito.verify(transferRepository, Mockito.never()).save(Mockito.any(Transfer.class));
     }
 
     @Test
-    void create_ShouldSaveATransferObjectWithContractFeeEquals0_IfTransferRepositoryFindFirstAscMethodReturnedAnEmptyOptional() {
+    void create_ShouldRecordATimerForEachHop() {
         PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(Mockito.anyLong()))
-                .thenReturn(Optional.of(new Transfer(Long.MAX_VALUE, Long.MAX_VALUE)));
-        Mockito.when(teamClient.checkIfTeamsExist(Mockito.anyList())).thenReturn(new Object());
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(Mockito.anyLong()))
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
                 .thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        transferService.create(new CreateTransferDTO(1L, 1L, 5));
+
+        for (String hop : Arrays.asList("summary", "player", "team"))
+            Assertions.assertEquals(1, meterRegistry.get("transfer.create.hop").tag("hop", hop).timer().count());
+    }
+
+    @Test
+    void create_ShouldSaveATransferObjectWithContractFeeEquals0_IfPlayerTransferSummaryRepositoryReturnedAnEmptyOptional() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
 
         transferService.create(new CreateTransferDTO(1L, 1L, 5));
 
@@ -100,14 +196,12 @@ class TransferServiceTest {
     }
 
     @Test
-    void create_ShouldSaveATransferObjectWithOldTeamIdEqualsNewTeamId_IfTransferRepositoryFindFirstByPlayerIdOrderByCreatedAtDescReturnedAnEmptyOptional() {
+    void create_ShouldSaveATransferObjectWithOldTeamIdEqualsNewTeamId_IfPlayerTransferSummaryRepositoryReturnedAnEmptyOptional() {
         PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(Mockito.anyLong()))
-                .thenReturn(Optional.empty());
-        Mockito.when(teamClient.checkIfTeamsExist(Mockito.anyList())).thenReturn(new Object());
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(Mockito.anyLong()))
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
                 .thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
 
         transferService.create(new CreateTransferDTO(1L, 1L, 5));
 
@@ -117,21 +211,18 @@ class TransferServiceTest {
     }
 
     @Test
-    void create_ShouldSaveATransferObject_IfTransferRepositoryFindFirstAscMethodDidNotReturnAnEmptyOptional() {
+    void create_ShouldSaveATransferObject_IfPlayerTransferSummaryRepositoryDidNotReturnAnEmptyOptional() {
         PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
-        Transfer t = new Transfer(
-                Timestamp.valueOf(LocalDateTime.now().minus(5, ChronoUnit.YEARS)),
-                1L,
+        PlayerTransferSummary summary = new PlayerTransferSummary(
                 1L,
-                1L,
-                10000D
+                Timestamp.valueOf(LocalDateTime.now().minus(5, ChronoUnit.YEARS)),
+                Long.MAX_VALUE,
+                3L
         );
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(Mockito.anyLong()))
-                .thenReturn(Optional.of(new Transfer(Long.MAX_VALUE, Long.MAX_VALUE)));
-        Mockito.when(teamClient.checkIfTeamsExist(Mockito.anyList())).thenReturn(new Object());
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(Mockito.anyLong()))
-                .thenReturn(Optional.of(t));
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.of(summary));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
 
         transferService.create(new CreateTransferDTO(1L, 1L, 5));
 
@@ -140,6 +231,43 @@ class TransferServiceTest {
         ArgumentCaptor<Transfer> argument = ArgumentCaptor.forClass(Transfer.class);
         Mockito.verify(transferRepository).save(argument.capture());
         Assertions.assertEquals(contractFee, argument.getValue().getContractFee());
+        Assertions.assertEquals(Long.MAX_VALUE, argument.getValue().getOldTeamId());
+    }
+
+    @Test
+    void create_ShouldSaveANewPlayerTransferSummary_IfPlayerTransferSummaryRepositoryReturnedAnEmptyOptional() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        transferService.create(new CreateTransferDTO(1L, 2L, 5));
+
+        ArgumentCaptor<PlayerTransferSummary> argument = ArgumentCaptor.forClass(PlayerTransferSummary.class);
+        Mockito.verify(playerTransferSummaryRepository).save(argument.capture());
+        Assertions.assertEquals(1L, argument.getValue().getPlayerId());
+        Assertions.assertEquals(2L, argument.getValue().getCurrentTeamId());
+        Assertions.assertEquals(1L, argument.getValue().getTransferCount());
+    }
+
+    @Test
+    void create_ShouldUpdateThePlayerTransferSummary_IfPlayerTransferSummaryRepositoryDidNotReturnAnEmptyOptional() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Timestamp firstTransferAt = Timestamp.valueOf(LocalDateTime.now().minus(1, ChronoUnit.YEARS));
+        PlayerTransferSummary summary = new PlayerTransferSummary(1L, firstTransferAt, 3L, 4L);
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.of(summary));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        transferService.create(new CreateTransferDTO(1L, 2L, 5));
+
+        ArgumentCaptor<PlayerTransferSummary> argument = ArgumentCaptor.forClass(PlayerTransferSummary.class);
+        Mockito.verify(playerTransferSummaryRepository).save(argument.capture());
+        Assertions.assertEquals(firstTransferAt, argument.getValue().getFirstTransferAt());
+        Assertions.assertEquals(2L, argument.getValue().getCurrentTeamId());
+        Assertions.assertEquals(5L, argument.getValue().getTransferCount());
     }
 
     @Test
@@ -153,11 +281,9 @@ class TransferServiceTest {
                 0D
         );
         Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtDesc(Mockito.anyLong()))
-                .thenReturn(Optional.of(new Transfer(Long.MAX_VALUE, Long.MAX_VALUE)));
-        Mockito.when(teamClient.checkIfTeamsExist(Mockito.anyList())).thenReturn(new Object());
-        Mockito.when(transferRepository.findFirstByPlayerIdOrderByCreatedAtAsc(Mockito.anyLong()))
-                .thenReturn(Optional.of(t));
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.of(new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), Long.MAX_VALUE, 1L)));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
         Mockito.when(transferRepository.save(Mockito.any(Transfer.class)))
                 .thenReturn(t);
 
@@ -167,14 +293,295 @@ class TransferServiceTest {
         );
     }
 
-}
+    @Test
+    void create_ShouldRecordACreatedOutboxEventForTheSavedTransfer() {
+        Transfer saved = new Transfer(1L, 2L);
+        saved.setId(42L);
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(new PlayerDTO(1L, 123L, "Peter", LocalDate.now()));
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(transferRepository.save(Mockito.any(Transfer.class))).thenReturn(saved);
+
+        transferService.create(new CreateTransferDTO(1L, 2L, 5));
+
+        Mockito.verify(outboxService).record(OutboxEvent.TRANSFER, 42L, OutboxEvent.CREATED, saved);
+    }
+
+    @Test
+    void createAll_ShouldApplyTransfersOfTheSamePlayerInRequestOrder_WithOneCallPerDependency() {
+        Mockito.when(playerClient.getPlayers(Mockito.anyList()))
+                .thenReturn(Collections.singletonList(new PlayerDTO(1L, 123L, "Peter", LocalDate.now())));
+        Mockito.when(playerTransferSummaryRepository.findAllById(Mockito.anyIterable()))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(teamExistenceBatcher.getExistingIds(Mockito.anyCollection()))
+                .thenReturn(new HashSet<>(Arrays.asList(2L, 3L)));
+
+        List<TransferResultDTO> results = transferService.createAll(Arrays.asList(
+                new CreateTransferDTO(1L, 2L, 5),
+                new CreateTransferDTO(1L, 3L, 5)
+        ));
+
+        Assertions.assertEquals(2L, results.get(0).getTransfer().getOldTeamId());
+        Assertions.assertEquals(2L, results.get(1).getTransfer().getOldTeamId());
+        Assertions.assertEquals(3L, results.get(1).getTransfer().getNewTeamId());
+        Mockito.verify(playerClient).getPlayers(Collections.singletonList(1L));
+        Mockito.verify(playerTransferSummaryRepository, Mockito.times(2)).findAllById(Mockito.anyIterable());
+        Mockito.verify(teamExistenceBatcher).getExistingIds(Mockito.anyCollection());
+        Mockito.verify(transferRepository, Mockito.never()).save(Mockito.any(Transfer.class));
+        Mockito.verify(outboxService).record(Mockito.eq(OutboxEvent.TRANSFER), Mockito.eq(OutboxEvent.CREATED),
+                Mockito.argThat(transfers -> transfers.size() == 2), Mockito.any());
+
+        ArgumentCaptor<Iterable<PlayerTransferSummary>> argument = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(playerTransferSummaryRepository).saveAll(argument.capture());
+        PlayerTransferSummary summary = argument.getValue().iterator().next();
+        Assertions.assertEquals(3L, summary.getCurrentTeamId());
+        Assertions.assertEquals(2L, summary.getTransferCount());
+    }
+
+    @Test
+    void createAll_ShouldReportAnErrorPerItem_IfThePlayerOrATeamDoesNotExist() {
+        PlayerTransferSummary summary = new PlayerTransferSummary(
+                1L,
+                Timestamp.valueOf(LocalDateTime.now().minus(5, ChronoUnit.YEARS)),
+                9L,
+                3L
+        );
+        Mockito.when(playerClient.getPlayers(Mockito.anyList()))
+                .thenReturn(Collections.singletonList(new PlayerDTO(1L, 123L, "Peter", LocalDate.now())));
+        Mockito.when(playerTransferSummaryRepository.findAllById(Mockito.anyIterable()))
+                .thenReturn(Collections.singletonList(summary));
+        Mockito.when(teamExistenceBatcher.getExistingIds(Mockito.anyCollection()))
+                .thenReturn(new HashSet<>(Arrays.asList(2L, 9L)));
+
+        List<TransferResultDTO> results = transferService.createAll(Arrays.asList(
+                new CreateTransferDTO(2L, 2L, 5),
+                new CreateTransferDTO(1L, 4L, 5),
+                new CreateTransferDTO(1L, 2L, 5)
+        ));
+
+        Assertions.assertNotNull(results.get(0).getError());
+        Assertions.assertNotNull(results.get(1).getError());
+        Assertions.assertNull(results.get(2).getError());
+        Assertions.assertEquals(9L, results.get(2).getTransfer().getOldTeamId());
+        double transferFee = 12 * 5 * 100000 / 1;
+        Assertions.assertEquals(transferFee + transferFee * 5 / 100, results.get(2).getTransfer().getContractFee());
 
+        ArgumentCaptor<Iterable<Transfer>> argument = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(transferRepository).saveAll(argument.capture());
+        Assertions.assertEquals(1, argument.getValue().spliterator().getExactSizeIfKnown());
+    }
 
+    @Test
+    void createAll_ShouldReturnAnEmptyListWithoutRemoteCalls_IfNoTransfersWereProvided() {
+        Assertions.assertTrue(transferService.createAll(Collections.emptyList()).isEmpty());
+        Mockito.verifyNoInteractions(playerClient, teamExistenceBatcher, playerLockManager);
+    }
 
+    @Test
+    void createAll_ShouldReportAnError_IfTheNewTeamIdEqualsTheCurrentTeamId() {
+        Mockito.when(playerClient.getPlayers(Mockito.anyList()))
+                .thenReturn(Collections.singletonList(new PlayerDTO(1L, 123L, "Peter", LocalDate.now())));
+        Mockito.when(playerTransferSummaryRepository.findAllById(Mockito.anyIterable()))
+                .thenReturn(Collections.singletonList(
+                        new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), 2L, 1L)));
+        Mockito.when(teamExistenceBatcher.getExistingIds(Mockito.anyCollection()))
+                .thenReturn(Collections.singleton(2L));
+
+        List<TransferResultDTO> results = transferService.createAll(
+                Collections.singletonList(new CreateTransferDTO(1L, 2L, 5)));
+
+        Assertions.assertEquals(0, results.get(0).getIndex());
+        Assertions.assertNotNull(results.get(0).getError());
+        Assertions.assertNull(results.get(0).getTransfer());
+    }
 
+    @Test
+    void create_ShouldUseTheTransferHistoryIndexInsteadOfTheSummaryTable_IfItIsReady() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().minus(1, ChronoUnit.YEARS));
+        Mockito.when(transferHistoryIndex.isReady()).thenReturn(true);
+        Mockito.when(transferHistoryIndex.getSummary(1L))
+                .thenReturn(Optional.of(new PlayerTransferSummary(1L, createdAt, 3L, 4L)));
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(playerTransferSummaryRepository.recordTransfer(1L, 3L, 2L)).thenReturn(1);
 
+        transferService.create(new CreateTransferDTO(1L, 2L, 5));
 
+        ArgumentCaptor<Transfer> argument = ArgumentCaptor.forClass(Transfer.class);
+        Mockito.verify(transferRepository).save(argument.capture());
+        Assertions.assertEquals(3L, argument.getValue().getOldTeamId());
+        Mockito.verify(playerTransferSummaryRepository, Mockito.never()).findById(Mockito.anyLong());
+        Mockito.verify(playerTransferSummaryRepository).recordTransfer(1L, 3L, 2L);
+        Mockito.verify(transferHistoryIndex).recordAfterCommit(Mockito.eq(1L), Mockito.eq(2L), Mockito.any(Timestamp.class));
+    }
 
+    @Test
+    void create_ShouldThrowConcurrentTransferException_IfTheTransferHistoryIndexIsStale() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().minus(1, ChronoUnit.YEARS));
+        Mockito.when(transferHistoryIndex.isReady()).thenReturn(true);
+        Mockito.when(transferHistoryIndex.getSummary(1L))
+                .thenReturn(Optional.of(new PlayerTransferSummary(1L, createdAt, 3L, 4L)));
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(playerTransferSummaryRepository.recordTransfer(1L, 3L, 2L)).thenReturn(0);
 
+        Assertions.assertThrows(ConcurrentTransferException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 2L, 5)));
+        Mockito.verify(transferHistoryIndex, Mockito.never())
+                .recordAfterCommit(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(Timestamp.class));
+    }
 
+    @Test
+    void create_ShouldRunUnderTheLockOfThePlayer() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        transferService.create(new CreateTransferDTO(1L, 2L, 5));
+
+        Mockito.verify(playerLockManager).executeLocked(Mockito.eq(Collections.singleton(1L)), Mockito.any());
+    }
+
+    @Test
+    void create_ShouldCallRemoteServicesBeforeTakingTheLock_AndRecheckTheSummaryUnderTheLock() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        PlayerTransferSummary summary = new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), 3L, 1L);
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty(), Optional.of(summary));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Transfer transfer = transferService.create(new CreateTransferDTO(1L, 2L, 5));
+
+        Assertions.assertEquals(3L, transfer.getOldTeamId());
+        InOrder inOrder = Mockito.inOrder(playerClient, teamExistenceBatcher, playerLockManager);
+        inOrder.verify(playerClient).getPlayerTeams(1L);
+        inOrder.verify(teamExistenceBatcher).submit(Arrays.asList(2L, 2L));
+        inOrder.verify(playerLockManager).executeLocked(Mockito.eq(Collections.singleton(1L)), Mockito.any());
+    }
+
+    @Test
+    void create_ShouldThrowAnInvalidIDException_IfTheTeamChangedToTheNewTeamIdWhileWaitingForTheLock() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        PlayerTransferSummary summary = new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), 2L, 1L);
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.empty(), Optional.of(summary));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Assertions.assertThrows(
+                InvalidIDException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 2L, 5))
+        );
+        Mockito.verify(transferRepository, Mockito.never()).save(Mockito.any(Transfer.class));
+    }
 
+    @Test
+    void create_ShouldHandTheTransferToTheGroupCommitter_IfGroupCommitIsEnabled() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        PlayerTransferSummary summary = new PlayerTransferSummary(1L, Timestamp.valueOf(LocalDateTime.now()), 3L, 1L);
+        Transfer committed = new Transfer(1L, 2L);
+        Mockito.when(transferGroupCommitter.isEnabled()).thenReturn(true);
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(summary));
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(transferGroupCommitter.submit(Mockito.any(), Mockito.eq(3L)))
+                .thenReturn(CompletableFuture.completedFuture(committed));
+
+        Assertions.assertEquals(committed, transferService.create(new CreateTransferDTO(1L, 2L, 5)));
+        Mockito.verify(playerLockManager).executeStriped(Mockito.eq(Collections.singleton(1L)), Mockito.any());
+        Mockito.verify(playerLockManager, Mockito.never()).executeLocked(Mockito.anyCollection(), Mockito.any());
+        Mockito.verify(transferRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(playerTransferSummaryRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void create_ShouldReturnTheStoredTransferWithoutRemoteCalls_IfTheIdempotencyKeyWasAlreadyUsed() {
+        Transfer stored = new Transfer(1L, 2L);
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(stored));
+
+        Assertions.assertEquals(stored, transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1"));
+        Assertions.assertEquals(stored, transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1"));
+        Mockito.verify(transferRepository, Mockito.times(1)).findByIdempotencyKey("key-1");
+        Mockito.verifyNoInteractions(playerClient, teamExistenceBatcher);
+        Mockito.verify(transferRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    void create_ShouldStoreTheIdempotencyKeyWithTheTransfer_IfTheKeyIsNew() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(transferRepository.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1");
+
+        ArgumentCaptor<Transfer> captor = ArgumentCaptor.forClass(Transfer.class);
+        Mockito.verify(transferRepository).save(captor.capture());
+        Assertions.assertEquals("key-1", captor.getValue().getIdempotencyKey());
+        Assertions.assertEquals(TransferService.requestHash(new CreateTransferDTO(1L, 2L, 5)),
+                captor.getValue().getIdempotencyRequestHash());
+    }
+
+    @Test
+    void create_ShouldThrowAnIdempotencyKeyMismatchException_IfTheKeyWasUsedForADifferentTransfer() {
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(new Transfer(1L, 3L)));
+
+        Assertions.assertThrows(
+                IdempotencyKeyMismatchException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1")
+        );
+    }
+
+    @Test
+    void create_ShouldThrowAnIdempotencyKeyMismatchException_IfTheKeyWasUsedWithADifferentCommission() {
+        Transfer stored = new Transfer(1L, 2L);
+        stored.setIdempotencyRequestHash(TransferService.requestHash(new CreateTransferDTO(1L, 2L, 5)));
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(stored));
+
+        Assertions.assertEquals(stored, transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1"));
+        Assertions.assertThrows(
+                IdempotencyKeyMismatchException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 2L, 6), "key-1")
+        );
+    }
+
+    @Test
+    void create_ShouldReturnTheTransferOfTheConcurrentRequest_IfSavingViolatedTheIdempotencyKeyIndex() {
+        Transfer stored = new Transfer(1L, 2L);
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1"))
+                .thenReturn(Optional.empty(), Optional.of(stored));
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.doThrow(new DataIntegrityViolationException("UQ_TRANSFER_IDEMPOTENCY_KEY"))
+                .when(playerLockManager).executeLocked(Mockito.anyCollection(), Mockito.any());
+
+        Assertions.assertEquals(stored, transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1"));
+    }
+
+    @Test
+    void create_ShouldRethrowTheDataIntegrityViolationException_IfNoTransferHasTheIdempotencyKey() {
+        PlayerDTO dto = new PlayerDTO(1L, 123L, "Peter", LocalDate.now());
+        Mockito.when(transferRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+        Mockito.when(playerClient.getPlayerTeams(Mockito.anyLong())).thenReturn(dto);
+        Mockito.when(playerTransferSummaryRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(teamExistenceBatcher.submit(Mockito.anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.doThrow(new DataIntegrityViolationException("fk"))
+                .when(playerLockManager).executeLocked(Mockito.anyCollection(), Mockito.any());
+
+        Assertions.assertThrows(
+                DataIntegrityViolationException.class,
+                () -> transferService.create(new CreateTransferDTO(1L, 2L, 5), "key-1")
+        );
+    }
+
+}
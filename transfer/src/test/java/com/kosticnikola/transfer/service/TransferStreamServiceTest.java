@@ -0,0 +1,190 @@
+package com.kosticnikola.transfer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kosticnikola.transfer.controller.TransferController;
+import com.kosticnikola.transfer.entity.OutboxEvent;
+import com.kosticnikola.transfer.exception.APIExceptionHandler;
+import com.kosticnikola.transfer.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TransferStreamServiceTest {
+
+    @Mock
+    OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    ChangeFeedService changeFeedService;
+
+    @Mock
+    TransferService transferService;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    TransferStreamService transferStreamService;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        transferStreamService = new TransferStreamService(outboxEventRepository, changeFeedService, new ObjectMapper(),
+                meterRegistry, 1, 2, 10, 10000, 10000, 1);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new TransferController(transferService, changeFeedService, transferStreamService))
+                .setControllerAdvice(new APIExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferStreamService.shutdown();
+    }
+
+    static OutboxEvent event(long offset, long playerId, long oldTeamId, long newTeamId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setFeedOffset(offset);
+        event.setAggregateType(OutboxEvent.TRANSFER);
+        event.setAggregateId(offset);
+        event.setEventType(OutboxEvent.CREATED);
+        event.setPayload(String.format("{\"id\":%d,\"playerId\":%d,\"oldTeamId\":%d,\"newTeamId\":%d}",
+                offset, playerId, oldTeamId, newTeamId));
+        return event;
+    }
+
+    String awaitContent(MvcResult result, String expected) throws Exception {
+        for (int i = 0; i < 100 && !result.getResponse().getContentAsString().contains(expected); i++) {
+            transferStreamService.dispatch();
+            Thread.sleep(20);
+        }
+        return result.getResponse().getContentAsString();
+    }
+
+    @Test
+    void subscribe_ShouldStreamOnlyTransfersOfTheRequestedTeam_StartingAfterTheCurrentHead() throws Exception {
+        Mockito.when(changeFeedService.getHead()).thenReturn(5L, 8L);
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(5L), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(event(6L, 1L, 10L, 20L), event(7L, 2L, 30L, 40L)));
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(7L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(event(8L, 3L, 20L, 50L)));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/stream?teamId=20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = awaitContent(result, "id:8");
+
+        Assertions.assertTrue(content.contains("id:6\nevent:transfer\ndata:{\"id\":6,\"playerId\":1,\"oldTeamId\":10,\"newTeamId\":20}"));
+        Assertions.assertFalse(content.contains("id:7"));
+        Assertions.assertTrue(content.contains("id:8\nevent:transfer\n"));
+        for (int i = 0; i < 100 && meterRegistry.counter("transfer.stream.sent").count() < 2; i++)
+            Thread.sleep(10);
+        Assertions.assertEquals(2.0, meterRegistry.counter("transfer.stream.sent").count());
+    }
+
+    @Test
+    void subscribe_ShouldResumeAfterTheLastEventId_IfTheHeaderIsPresent() throws Exception {
+        Mockito.when(changeFeedService.getHead()).thenReturn(8L);
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(6L), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(event(7L, 2L, 30L, 40L), event(8L, 3L, 20L, 50L)));
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(8L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/stream?playerId=2")
+                        .header("Last-Event-ID", "6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = awaitContent(result, "id:7");
+
+        Assertions.assertTrue(content.contains("id:7\nevent:transfer\n"));
+        Assertions.assertFalse(content.contains("id:8"));
+        Mockito.verify(outboxEventRepository, Mockito.never())
+                .findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(0L), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    void subscribe_ShouldReturnAStatusCode503_IfThereAreTooManySubscribers() throws Exception {
+        Mockito.when(changeFeedService.getHead()).thenReturn(0L);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/stream"))
+                .andExpect(request().asyncStarted());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/stream"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void subscribe_ShouldReturnAStatusCode400_IfTheLastEventIdIsNotANumber() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/transfer/stream").header("Last-Event-ID", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void dispatch_ShouldReadEachPageOnce_AndFanItOutToEverySubscriber() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransferStreamService service = new TransferStreamService(outboxEventRepository, changeFeedService,
+                new ObjectMapper(), registry, 3, 2, 10, 10000, 10000, 1);
+        Mockito.when(changeFeedService.getHead()).thenReturn(5L, 5L, 5L, 6L);
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(5L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(event(6L, 1L, 10L, 20L)));
+        for (int i = 0; i < 3; i++)
+            service.subscribe(null, null, null);
+
+        service.dispatch();
+
+        Mockito.verify(outboxEventRepository, Mockito.times(1))
+                .findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.anyLong(), Mockito.any(Pageable.class));
+        for (int i = 0; i < 100 && registry.counter("transfer.stream.sent").count() < 3; i++)
+            Thread.sleep(10);
+        Assertions.assertEquals(3.0, registry.counter("transfer.stream.sent").count());
+        service.shutdown();
+    }
+
+    @Test
+    void dispatch_ShouldDropASubscriber_IfItsEventsWereNotSentWithinTheSendTimeout() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        sender.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransferStreamService service = new TransferStreamService(outboxEventRepository, changeFeedService,
+                new ObjectMapper(), registry, 1, 2, 10, 10000, 1, sender);
+        Mockito.when(changeFeedService.getHead()).thenReturn(5L, 6L);
+        Mockito.when(outboxEventRepository.findAllByFeedOffsetGreaterThanOrderByFeedOffsetAsc(Mockito.eq(5L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(event(6L, 1L, 10L, 20L)));
+        service.subscribe(null, null, null);
+
+        service.dispatch();
+        Thread.sleep(20);
+        service.dispatch();
+
+        Assertions.assertEquals(1.0, registry.counter("transfer.stream.dropped").count());
+        Assertions.assertEquals(0.0, registry.get("transfer.stream.subscribers").gauge().value());
+        blocked.countDown();
+        service.shutdown();
+    }
+
+}